@@ -0,0 +1,110 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.service.StockReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Periodically deletes baskets without activity for longer than the idle TTL. Baskets are visited in ID order in bounded
+// chunks, each purged in its own short transaction, so the job never holds many locks or one long transaction.
+@Component
+public class AbandonedBasketPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedBasketPurger.class);
+
+    private final BasketRepository basketRepository;
+    private final BasketItemRepository basketItemRepository;
+    private final StockReservationService stockReservationService;
+    private final TransactionOperations transactionOperations;
+    private final Duration idleTtl;
+    private final int chunkSize;
+
+    private final Counter purgedBaskets;
+    private final Counter purgedItems;
+    private final Timer chunkTimer;
+
+    public AbandonedBasketPurger(BasketRepository basketRepository, BasketItemRepository basketItemRepository,
+                                 StockReservationService stockReservationService, TransactionOperations transactionOperations,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${wineshop.basket.purge.idle-ttl:P7D}") Duration idleTtl,
+                                 @Value("${wineshop.basket.purge.chunk-size:500}") int chunkSize){
+        this.basketRepository = basketRepository;
+        this.basketItemRepository = basketItemRepository;
+        this.stockReservationService = stockReservationService;
+        this.transactionOperations = transactionOperations;
+        this.idleTtl = idleTtl;
+        this.chunkSize = chunkSize;
+
+        this.purgedBaskets = Counter.builder("wineshop.basket.purge.baskets")
+                .description("Abandoned baskets deleted")
+                .register(meterRegistry);
+        this.purgedItems = Counter.builder("wineshop.basket.purge.items")
+                .description("Items deleted together with abandoned baskets")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("wineshop.basket.purge.chunk")
+                .description("Time to purge one chunk of abandoned baskets")
+                .register(meterRegistry);
+    }
+
+    // Runs the purge on a fixed delay
+    @Scheduled(fixedDelayString = "${wineshop.basket.purge.interval:PT1H}")
+    public void purge(){
+        purge(Instant.now());
+    }
+
+    // Deletes every basket idle since before now minus the idle TTL and returns the number of deleted baskets
+    public int purge(Instant now){
+        Instant cutoff = now.minus(idleTtl);
+        int purged = 0;
+        int afterId = 0;
+
+        while(true){
+            List<Integer> ids = basketRepository.findIdleBasketIds(cutoff, afterId, PageRequest.of(0, chunkSize));
+            if(ids.isEmpty()){
+                break;
+            }
+            purged += chunkTimer.record(() -> transactionOperations.execute(status -> purgeChunk(ids, cutoff)));
+            afterId = ids.get(ids.size() - 1);
+        }
+
+        if(purged > 0){
+            logger.info("Purged {} abandoned baskets idle since before {}", purged, cutoff);
+        }
+        return purged;
+    }
+
+    // Locks the chunk's baskets that are still idle, which also guards their items, releases the items' reservations
+    // and deletes items and baskets
+    private int purgeChunk(List<Integer> ids, Instant cutoff){
+        List<Basket> baskets = basketRepository.findIdleForUpdate(ids, cutoff);
+        if(baskets.isEmpty()){
+            return 0;
+        }
+
+        List<BasketItem> items = basketItemRepository.findByBasketIn(baskets);
+        if(!items.isEmpty()){
+            stockReservationService.releaseAll(items);
+            basketItemRepository.deleteAllInBatch(items);
+        }
+        basketRepository.deleteAllInBatch(baskets);
+
+        purgedBaskets.increment(baskets.size());
+        purgedItems.increment(items.size());
+        return baskets.size();
+    }
+}
@@ -0,0 +1,8 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.Wine;
+
+// Outcome of changing one wine in a basket: the wine, its new quantity and line price (0 once removed) and the basket
+// count and total after the change
+public record BasketChange(Wine wine, int quantity, Money linePrice, BasketSummary summary) {
+}
@@ -0,0 +1,12 @@
+package com.wineshop.basket;
+
+import java.math.BigDecimal;
+
+// JSON answer of the basket API: only the changed line and the new basket count and total
+public record BasketChangeView(Integer wineId, int quantity, BigDecimal linePrice, int itemCount, BigDecimal totalCost) {
+
+    public static BasketChangeView of(BasketChange change){
+        return new BasketChangeView(change.wine().getId(), change.quantity(), change.linePrice().toBigDecimal(),
+                change.summary().itemCount(), change.summary().totalCost().toBigDecimal());
+    }
+}
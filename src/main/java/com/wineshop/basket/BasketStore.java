@@ -0,0 +1,33 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.BasketItem;
+
+import java.util.List;
+import java.util.Map;
+
+// Where session baskets are kept and changed. Selected with wineshop.basket.store: "jpa" (default) or "session".
+// Every implementation reserves stock in the database before a change is accepted. Changes of a single wine return the
+// changed line and the basket totals, so callers need no second read.
+public interface BasketStore {
+
+    // Adds a wine to the session's basket or increases its quantity, creating the basket on the first item
+    BasketChange addOrUpdateItem(String sessionId, Integer wineId, int quantity);
+
+    // Removes a wine from the session's basket and releases its stock
+    BasketChange removeItem(String sessionId, Integer wineId);
+
+    // Sets the quantity of one wine in the basket, reserving or releasing the difference
+    BasketChange updateItemQuantity(String sessionId, Integer wineId, int newQuantity);
+
+    // Sets the quantities of several wines at once; if any of them lacks stock none is changed
+    void updateItemQuantities(String sessionId, Map<Integer, Integer> quantitiesByWineId);
+
+    // Items with their wines and the total, for the basket page. A missing basket reads as empty.
+    BasketView getView(String sessionId);
+
+    // Items in wine ID order. A missing basket reads as empty.
+    List<BasketItem> getItems(String sessionId);
+
+    // Item count, total and last activity of the basket, for the navigation badge
+    BasketSummary getSummary(String sessionId);
+}
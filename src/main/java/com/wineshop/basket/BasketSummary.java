@@ -0,0 +1,20 @@
+package com.wineshop.basket;
+
+import java.time.Instant;
+
+// Item count and total of a basket as stored on the basket row, for the navigation badge
+public record BasketSummary(int itemCount, Money totalCost, Instant lastActivityAt) {
+
+    // Summary of a session that has no basket yet
+    public static final BasketSummary EMPTY = new BasketSummary(0, Money.ZERO, null);
+
+    // Short token that changes whenever the count or total does, for page validators
+    public String tag(){
+        return itemCount + "-" + Long.toString(totalCost.minorUnits(), 36);
+    }
+
+    // Last activity in epoch milliseconds, or 0 without a basket
+    public long lastModified(){
+        return lastActivityAt == null ? 0 : lastActivityAt.toEpochMilli();
+    }
+}
@@ -0,0 +1,101 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Periodically recomputes the stored item count and total of every basket from its items and corrects any drift.
+// Baskets are visited in ID order in bounded chunks, each locked and checked in its own short transaction.
+@Component
+public class BasketTotalsReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BasketTotalsReconciler.class);
+
+    private final BasketRepository basketRepository;
+    private final BasketItemRepository basketItemRepository;
+    private final TransactionOperations transactionOperations;
+    private final int chunkSize;
+
+    private final Counter corrected;
+
+    public BasketTotalsReconciler(BasketRepository basketRepository, BasketItemRepository basketItemRepository,
+                                  TransactionOperations transactionOperations, MeterRegistry meterRegistry,
+                                  @Value("${wineshop.basket.reconcile.chunk-size:500}") int chunkSize){
+        this.basketRepository = basketRepository;
+        this.basketItemRepository = basketItemRepository;
+        this.transactionOperations = transactionOperations;
+        this.chunkSize = chunkSize;
+
+        this.corrected = Counter.builder("wineshop.basket.reconcile.corrected")
+                .description("Baskets whose stored totals differed from their items")
+                .register(meterRegistry);
+    }
+
+    // Runs the check on a fixed delay
+    @Scheduled(fixedDelayString = "${wineshop.basket.reconcile.interval:PT6H}")
+    public void scheduledReconcile(){
+        reconcile();
+    }
+
+    // Checks every basket and returns the number of corrected ones
+    public int reconcile(){
+        int correctedBaskets = 0;
+        int afterId = 0;
+
+        while(true){
+            List<Integer> ids = basketRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize));
+            if(ids.isEmpty()){
+                break;
+            }
+            correctedBaskets += transactionOperations.execute(status -> reconcileChunk(ids));
+            afterId = ids.get(ids.size() - 1);
+        }
+
+        if(correctedBaskets > 0){
+            logger.warn("Corrected stored totals of {} baskets", correctedBaskets);
+        }
+        return correctedBaskets;
+    }
+
+    // Locks the chunk's baskets, sums their items and overwrites totals that differ
+    private int reconcileChunk(List<Integer> ids){
+        List<Basket> baskets = basketRepository.findAllForUpdate(ids);
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        Map<Integer, Money> totals = new HashMap<>();
+        for(BasketItem item : basketItemRepository.findByBasketIn(baskets)){
+            Integer basketId = item.getBasket().getId();
+            counts.merge(basketId, item.getQuantity(), Integer::sum);
+            totals.merge(basketId, item.getLinePrice(), Money::plus);
+        }
+
+        int correctedBaskets = 0;
+        for(Basket basket : baskets){
+            int itemCount = counts.getOrDefault(basket.getId(), 0);
+            Money totalCost = totals.getOrDefault(basket.getId(), Money.ZERO);
+            if(basket.getItemCount() != itemCount || !basket.getTotalCost().equals(totalCost)){
+                logger.warn("Basket {} totals drifted: stored {} items / {}, actual {} items / {}",
+                        basket.getId(), basket.getItemCount(), basket.getTotalCost(), itemCount, totalCost);
+                basket.resetTotals(itemCount, totalCost);
+                correctedBaskets++;
+            }
+        }
+
+        corrected.increment(correctedBaskets);
+        return correctedBaskets;
+    }
+}
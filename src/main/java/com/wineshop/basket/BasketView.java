@@ -0,0 +1,39 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.BasketItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Basket page contents: items with their wines fully loaded, the total and, when known, the stock still available per
+// wine ID, built from a single query
+public record BasketView(List<BasketItem> items, BigDecimal totalCost, Map<Integer, Integer> availableByWineId) {
+
+    // Sums item prices in grosze in the same pass that collects the items. Available stock is not known.
+    public static BasketView of(List<BasketItem> items){
+        return new BasketView(items, totalOf(items), Map.of());
+    }
+
+    // Builds the view from (item, available stock) rows
+    public static BasketView ofRows(List<Object[]> rows){
+        List<BasketItem> items = new ArrayList<>(rows.size());
+        Map<Integer, Integer> availableByWineId = new HashMap<>();
+        for(Object[] row : rows){
+            BasketItem item = (BasketItem) row[0];
+            items.add(item);
+            availableByWineId.put(item.getWine().getId(), Math.max(((Number) row[1]).intValue(), 0));
+        }
+        return new BasketView(items, totalOf(items), availableByWineId);
+    }
+
+    private static BigDecimal totalOf(List<BasketItem> items){
+        Money totalCost = Money.ZERO;
+        for(BasketItem item : items){
+            totalCost = totalCost.plus(item.getLinePrice());
+        }
+        return totalCost.toBigDecimal();
+    }
+}
@@ -0,0 +1,90 @@
+package com.wineshop.basket;
+
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Periodically removes basket items whose reservation expired and returns their stock, one bounded batch of baskets
+// per transaction
+@Component
+public class ExpiredReservationSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredReservationSweeper.class);
+
+    private final BasketRepository basketRepository;
+    private final BasketItemRepository basketItemRepository;
+    private final StockReservationService stockReservationService;
+    private final TransactionOperations transactionOperations;
+    private final int batchSize;
+
+    public ExpiredReservationSweeper(BasketRepository basketRepository, BasketItemRepository basketItemRepository,
+                                     StockReservationService stockReservationService, TransactionOperations transactionOperations,
+                                     @Value("${wineshop.basket.reservation.sweep-batch-size:500}") int batchSize){
+        this.basketRepository = basketRepository;
+        this.basketItemRepository = basketItemRepository;
+        this.stockReservationService = stockReservationService;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = batchSize;
+    }
+
+    // Runs the sweep on a fixed delay
+    @Scheduled(fixedDelayString = "${wineshop.basket.reservation.sweep-interval:PT1M}")
+    public void sweep(){
+        sweep(Instant.now());
+    }
+
+    // Releases every reservation that expired before the given time and returns the number of removed items
+    public int sweep(Instant now){
+        int released = 0;
+        while(true){
+            List<Integer> basketIds = basketItemRepository.findBasketIdsWithExpiredReservations(now, PageRequest.of(0, batchSize));
+            if(basketIds.isEmpty()){
+                break;
+            }
+            released += transactionOperations.execute(status -> sweepBatch(basketIds, now));
+            if(basketIds.size() < batchSize){
+                break;
+            }
+        }
+
+        if(released > 0){
+            logger.info("Released {} expired basket reservations", released);
+        }
+        return released;
+    }
+
+    // Locks one batch of baskets, like every basket change does before touching items, then returns the stock of their
+    // expired items, deletes them and takes them off the basket totals
+    private int sweepBatch(List<Integer> basketIds, Instant now){
+        List<Basket> baskets = basketRepository.findAllForUpdate(basketIds);
+        Map<Integer, Basket> basketsById = baskets.stream().collect(Collectors.toMap(Basket::getId, Function.identity()));
+
+        // Read after the locks, so an item extended by a concurrent add in the meantime is no longer expired
+        List<BasketItem> expired = basketItemRepository.findByBasketInAndReservedUntilBefore(baskets, now);
+        if(expired.isEmpty()){
+            return 0;
+        }
+
+        stockReservationService.releaseAll(expired);
+        basketItemRepository.deleteAllInBatch(expired);
+        for(BasketItem item : expired){
+            basketsById.get(item.getBasket().getId()).adjustTotals(-item.getQuantity(), Money.ZERO.minus(item.getLinePrice()));
+        }
+        return expired.size();
+    }
+}
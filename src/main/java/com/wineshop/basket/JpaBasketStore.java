@@ -0,0 +1,267 @@
+package com.wineshop.basket;
+
+import com.wineshop.exception.BasketItemNotFoundException;
+import com.wineshop.exception.BasketNotFoundException;
+import com.wineshop.exception.WineNotFoundException;
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Default basket store: every change and read goes to the database in its own transaction
+@Component
+@ConditionalOnProperty(name = "wineshop.basket.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaBasketStore implements BasketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JpaBasketStore.class);
+
+    private static final int MAX_ADD_ATTEMPTS = 3;
+
+    private final BasketItemRepository basketItemRepository;
+    private final BasketRepository basketRepository;
+    private final WineRepository wineRepository;
+    private final StockReservationService stockReservationService;
+    private final TransactionOperations transactionOperations;
+
+    public JpaBasketStore(BasketItemRepository basketItemRepository, BasketRepository basketRepository, WineRepository wineRepository,
+                          StockReservationService stockReservationService, TransactionOperations transactionOperations){
+        this.basketItemRepository = basketItemRepository;
+        this.basketRepository = basketRepository;
+        this.wineRepository = wineRepository;
+        this.stockReservationService = stockReservationService;
+        this.transactionOperations = transactionOperations;
+    }
+
+    // Adds a wine to the basket or updates quantity if it already exists, reserving the added stock and updating the basket
+    // totals in the same transaction. An attempt that loses a race to insert the same basket or item is retried in a fresh
+    // transaction.
+    @Override
+    public BasketChange addOrUpdateItem(String sessionId, Integer wineId, int quantity){
+        for(int attempt = 1; ; attempt++){
+            try{
+                return transactionOperations.execute(status -> addOrUpdateBasketItemOnce(sessionId, wineId, quantity));
+            }catch(DataIntegrityViolationException | ConcurrencyFailureException ex){
+                if(attempt >= MAX_ADD_ATTEMPTS){
+                    logger.warn("Giving up adding basket item after {} attempts. Session ID: {}, Wine ID: {}", attempt, sessionId, wineId);
+                    throw ex;
+                }
+                logger.info("Concurrent basket change detected, retrying (attempt {}). Session ID: {}, Wine ID: {}", attempt, sessionId, wineId);
+            }
+        }
+    }
+
+    // Runs a single add-or-update attempt inside the caller's transaction
+    private BasketChange addOrUpdateBasketItemOnce(String sessionId, Integer wineId, int quantity){
+        Wine wine = findWineById(wineId);
+
+        // The basket is created with its first item; it is rolled back with it if the item is rejected
+        Basket basket = basketRepository.touchBySessionId(sessionId, Instant.now()) > 0
+                ? findBasketBySessionId(sessionId)
+                : createBasket(sessionId);
+
+        // The basket row lock taken above serializes every change to this basket's items. If the added bottles are not in
+        // stock the whole attempt rolls back.
+        stockReservationService.reserve(wine, quantity);
+        Money unitPrice = Money.of(wine.getPrice());
+        Instant reservedUntil = stockReservationService.nextExpiry();
+
+        BasketItem existingItem = basketItemRepository.findByBasketAndWine(basket, wine).orElse(null);
+        if(existingItem != null){
+            Money previousPrice = existingItem.getLinePrice();
+            existingItem.setQuantity(existingItem.getQuantity() + quantity);
+            existingItem.setPrice(unitPrice.times(existingItem.getQuantity()));
+            existingItem.setReservedUntil(reservedUntil);
+            basket.adjustTotals(quantity, existingItem.getLinePrice().minus(previousPrice));
+            logger.info("Updated quantity for basket item. Wine: {}, New Quantity: {}", wine.getName(), existingItem.getQuantity());
+            return changeOf(basket, wine, existingItem);
+        }
+
+        // Flushed right away so a concurrent insert of the same item fails here and the attempt is retried
+        BasketItem basketItem = new BasketItem(wine, quantity, unitPrice.times(quantity));
+        basketItem.setBasket(basket);
+        basketItem.setReservedUntil(reservedUntil);
+        basketItemRepository.saveAndFlush(basketItem);
+        basket.adjustTotals(quantity, basketItem.getLinePrice());
+
+        logger.info("Created new basket item for wine: {}", wine.getName());
+        return changeOf(basket, wine, basketItem);
+    }
+
+
+    // Removes an item from the basket and releases its reserved stock
+    @Override
+    @Transactional
+    public BasketChange removeItem(String sessionId, Integer wineId){
+        Basket basket = touchBasketBySessionId(sessionId);
+        Wine wine = findWineById(wineId);
+        BasketItem basketItem = findBasketItemByBasketAndWine(basket, wine);
+
+        basketItemRepository.delete(basketItem);
+        stockReservationService.release(wine, basketItem.getQuantity());
+        basket.adjustTotals(-basketItem.getQuantity(), Money.ZERO.minus(basketItem.getLinePrice()));
+        logger.info("Basket item removed successfully. Wine: {}", wine.getName());
+        return changeOf(basket, wine, null);
+    }
+
+
+    //Updates the quantity of an item in the basket, reserving or releasing the difference
+    @Override
+    @Transactional
+    public BasketChange updateItemQuantity(String sessionId, Integer wineId, int newQuantity){
+        Basket basket = touchBasketBySessionId(sessionId);
+        Wine wine = findWineById(wineId);
+        BasketItem basketItem = findBasketItemByBasketAndWine(basket, wine);
+
+        reserveDifference(basketItem, newQuantity);
+        applyQuantity(basket, basketItem, newQuantity, stockReservationService.nextExpiry());
+        basketItemRepository.save(basketItem);
+
+        logger.info("Basket item quantity updated successfully. Wine: {}, New Quantity: {}", wine.getName(), newQuantity);
+        return changeOf(basket, wine, basketItem);
+    }
+
+    // Updates quantities of several basket items in one transaction. Items and their wines are locked and read with a single
+    // query, and the item updates are flushed together as one JDBC batch. Reservations are adjusted in wine ID order; if any
+    // line lacks stock the whole update rolls back.
+    @Override
+    @Transactional
+    public void updateItemQuantities(String sessionId, Map<Integer, Integer> quantitiesByWineId){
+        Basket basket = touchBasketBySessionId(sessionId);
+        Map<Integer, BasketItem> itemsByWineId = new TreeMap<>();
+        for(BasketItem item : basketItemRepository.findByBasketAndWineIdIn(basket, quantitiesByWineId.keySet())){
+            itemsByWineId.put(item.getWine().getId(), item);
+        }
+
+        quantitiesByWineId.keySet().forEach(wineId -> {
+            if(!itemsByWineId.containsKey(wineId)){
+                logger.warn("Basket item not found for wine ID: {}", wineId);
+                throw new BasketItemNotFoundException("Basket item not found for wine ID: " + wineId);
+            }
+        });
+
+        // Reservations run first: each one flushes, so changing the entities only afterwards keeps their updates in one batch
+        itemsByWineId.forEach((wineId, basketItem) -> reserveDifference(basketItem, quantitiesByWineId.get(wineId)));
+
+        // Managed items and the basket are written by dirty checking at commit
+        Instant reservedUntil = stockReservationService.nextExpiry();
+        itemsByWineId.forEach((wineId, basketItem) -> applyQuantity(basket, basketItem, quantitiesByWineId.get(wineId), reservedUntil));
+    }
+
+    // Fetches basket items, their wines, their available stock and the total cost with a single query. A missing basket
+    // reads as empty.
+    @Override
+    @Transactional(readOnly = true)
+    public BasketView getView(String sessionId){
+        return BasketView.ofRows(basketItemRepository.findAllWithWinesAndStockBySessionId(sessionId));
+    }
+
+    // Fetches all items in the basket for the given session ID. A missing basket reads as empty.
+    @Override
+    @Transactional(readOnly = true)
+    public List<BasketItem> getItems(String sessionId){
+        Basket basket = basketRepository.findBySessionId(sessionId).orElse(null);
+        if(basket == null){
+            logger.info("No basket yet for session ID: {}", sessionId);
+            return List.of();
+        }
+
+        return basketItemRepository.findByBasket(basket).stream()
+                .sorted(Comparator.comparing(item -> item.getWine().getId()))
+                .toList();
+    }
+
+    // Reads the item count and total of a session's basket with one indexed single-row query
+    @Override
+    @Transactional(readOnly = true)
+    public BasketSummary getSummary(String sessionId){
+        return basketRepository.findSummaryBySessionId(sessionId).orElse(BasketSummary.EMPTY);
+    }
+
+
+    // Creates an empty basket for the session, flushed so a concurrent creation for the same session fails here
+    private Basket createBasket(String sessionId){
+        logger.info("Creating basket on first item for session ID: {}", sessionId);
+        return basketRepository.saveAndFlush(new Basket(sessionId));
+    }
+
+    // Records activity on the session's basket and returns it. Touching first locks the basket row before any of its
+    // items or wines, the order every basket change follows, so concurrent changes do not deadlock each other.
+    private Basket touchBasketBySessionId(String sessionId){
+        basketRepository.touchBySessionId(sessionId, Instant.now());
+        return findBasketBySessionId(sessionId);
+    }
+
+    // Finds a basket by session ID or throws a BasketNotFoundException if not found.
+    private Basket findBasketBySessionId(String sessionId){
+        return basketRepository.findBySessionId(sessionId)
+                .orElseThrow(() -> {
+                    logger.warn("Basket not found for session ID: {}", sessionId);
+                    return new BasketNotFoundException("Basket not found for session ID: " + sessionId);
+                });
+    }
+
+    // Finds a wine by ID or throws a WineNotFoundException if not found.
+    private Wine findWineById(Integer wineId){
+        return wineRepository.findById(wineId)
+                .orElseThrow(() -> {
+                    logger.warn("Wine not found for ID: {}", wineId);
+                    return new WineNotFoundException("Wine not found for ID: " + wineId);
+                });
+    }
+
+    // Reserves or releases the stock between the item's current and new quantity
+    private void reserveDifference(BasketItem basketItem, int newQuantity){
+        int difference = newQuantity - basketItem.getQuantity();
+        if(difference > 0){
+            stockReservationService.reserve(basketItem.getWine(), difference);
+        }else if(difference < 0){
+            stockReservationService.release(basketItem.getWine(), -difference);
+        }
+    }
+
+    // Sets the item quantity, line price and reservation expiry, and moves the basket totals by the same difference
+    private void applyQuantity(Basket basket, BasketItem basketItem, int newQuantity, Instant reservedUntil){
+        int difference = newQuantity - basketItem.getQuantity();
+        Money previousPrice = basketItem.getLinePrice();
+        basketItem.setQuantity(newQuantity);
+        basketItem.setPrice(Money.of(basketItem.getWine().getPrice()).times(newQuantity));
+        basketItem.setReservedUntil(reservedUntil);
+        basket.adjustTotals(difference, basketItem.getLinePrice().minus(previousPrice));
+    }
+
+    // Describes the item after a change, or its removal when null, with the basket totals the change left
+    private BasketChange changeOf(Basket basket, Wine wine, BasketItem item){
+        BasketSummary summary = new BasketSummary(basket.getItemCount(), basket.getTotalCost(), basket.getLastActivityAt());
+        return item == null
+                ? new BasketChange(wine, 0, Money.ZERO, summary)
+                : new BasketChange(wine, item.getQuantity(), item.getLinePrice(), summary);
+    }
+
+    // Finds and locks a basket item by basket and wine or throws a BasketItemNotFoundException if not found.
+    private BasketItem findBasketItemByBasketAndWine (Basket basket, Wine wine){
+        return basketItemRepository.findWithLockByBasketAndWine(basket, wine)
+                .orElseThrow(() -> {
+                    logger.warn("Basket item not found for wine: {}", wine.getName());
+                    return new BasketItemNotFoundException("Basket item not found for wine: " + wine.getName());
+                });
+    }
+
+
+}
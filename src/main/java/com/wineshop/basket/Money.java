@@ -0,0 +1,43 @@
+package com.wineshop.basket;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amount of money in grosze. Basket prices and totals are added and multiplied as plain longs; converting from a
+// BigDecimal with more than two decimal places or overflowing a long throws instead of rounding silently.
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    // Converts an amount in złoty; it must be exact to the grosz
+    public static Money of(BigDecimal amount){
+        return new Money(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    public Money plus(Money other){
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other){
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(int quantity){
+        return new Money(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    // Amount in złoty with two decimal places
+    public BigDecimal toBigDecimal(){
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    @Override
+    public int compareTo(Money other){
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString(){
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,488 @@
+package com.wineshop.basket;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.wineshop.exception.BasketItemNotFoundException;
+import com.wineshop.exception.WineNotFoundException;
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.service.StockReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Basket store that keeps each session's basket in memory and writes it to the database behind the requests.
+// Reads never leave memory. Stock is still reserved in the database before a change is accepted, so nothing is
+// oversold. Changed baskets are written in batches on a fixed delay, any number of clicks becoming one write of the
+// latest state, and right away when their session ends, they are evicted or the application stops.
+// Assumes each session is served by a single application instance.
+@Component
+@ConditionalOnProperty(name = "wineshop.basket.store", havingValue = "session")
+public class SessionBasketStore implements BasketStore, HttpSessionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionBasketStore.class);
+
+    private final BasketRepository basketRepository;
+    private final BasketItemRepository basketItemRepository;
+    private final WineRepository wineRepository;
+    private final StockReservationService stockReservationService;
+    private final TransactionOperations transactionOperations;
+    private final Duration reservationGrace;
+    private final int batchSize;
+
+    private final Cache<String, SessionBasket> baskets;
+    private final Set<SessionBasket> pending = ConcurrentHashMap.newKeySet();
+
+    // Serializes database writes so an older state of a basket never overwrites a newer one
+    private final Object writeLock = new Object();
+
+    private final Counter written;
+
+    public SessionBasketStore(BasketRepository basketRepository, BasketItemRepository basketItemRepository, WineRepository wineRepository,
+                              StockReservationService stockReservationService, TransactionOperations transactionOperations,
+                              MeterRegistry meterRegistry,
+                              @Value("${wineshop.basket.session-store.maximum-size:10000}") long maximumSize,
+                              @Value("${wineshop.basket.session-store.idle-ttl:PT30M}") Duration idleTtl,
+                              @Value("${wineshop.basket.session-store.reservation-grace:PT5M}") Duration reservationGrace,
+                              @Value("${wineshop.basket.session-store.batch-size:100}") int batchSize){
+        this.basketRepository = basketRepository;
+        this.basketItemRepository = basketItemRepository;
+        this.wineRepository = wineRepository;
+        this.stockReservationService = stockReservationService;
+        this.transactionOperations = transactionOperations;
+        this.reservationGrace = reservationGrace;
+        this.batchSize = batchSize;
+
+        // Eviction listeners run inside the removal, so a new load of the same session waits until the basket is written
+        this.baskets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleTtl)
+                .evictionListener((String sessionId, SessionBasket basket, RemovalCause cause) -> retire(basket))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, baskets, "sessionBaskets");
+
+        this.written = Counter.builder("wineshop.basket.store.written")
+                .description("Session baskets written to the database")
+                .register(meterRegistry);
+        Gauge.builder("wineshop.basket.store.pending", pending, Set::size)
+                .description("Session baskets with changes not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public BasketChange addOrUpdateItem(String sessionId, Integer wineId, int quantity){
+        Wine wine = findWineById(wineId);
+        return changeLine(sessionId, wineId, basket -> {
+            inTransaction(() -> stockReservationService.reserve(wine, quantity));
+            Line line = basket.lines.get(wineId);
+            basket.lines.put(wineId, Line.of(wine, line == null ? quantity : line.quantity() + quantity, stockReservationService.nextExpiry()));
+            return wine;
+        });
+    }
+
+    @Override
+    public BasketChange removeItem(String sessionId, Integer wineId){
+        return changeLine(sessionId, wineId, basket -> {
+            Line line = findLine(basket, wineId);
+            inTransaction(() -> stockReservationService.release(line.wine(), line.quantity()));
+            basket.lines.remove(wineId);
+            return line.wine();
+        });
+    }
+
+    @Override
+    public BasketChange updateItemQuantity(String sessionId, Integer wineId, int newQuantity){
+        return changeLine(sessionId, wineId, basket -> {
+            setQuantities(basket, Map.of(wineId, newQuantity));
+            return basket.lines.get(wineId).wine();
+        });
+    }
+
+    @Override
+    public void updateItemQuantities(String sessionId, Map<Integer, Integer> quantitiesByWineId){
+        withBasket(sessionId, basket -> {
+            setQuantities(basket, quantitiesByWineId);
+            touched(basket);
+            return null;
+        });
+    }
+
+    // Served from memory, so available stock is left out and the page sets no upper bound on quantities
+    @Override
+    public BasketView getView(String sessionId){
+        return BasketView.of(getItems(sessionId));
+    }
+
+    @Override
+    public List<BasketItem> getItems(String sessionId){
+        return withBasket(sessionId, basket -> basket.lines.values().stream().map(Line::toItem).toList());
+    }
+
+    @Override
+    public BasketSummary getSummary(String sessionId){
+        return withBasket(sessionId, SessionBasket::summary);
+    }
+
+    // Writes changed baskets in batches, after expiring resident reservations that ran out
+    @Scheduled(fixedDelayString = "${wineshop.basket.session-store.flush-interval:PT2S}")
+    public void flush(){
+        // Also runs due idle evictions, which write their own baskets
+        baskets.cleanUp();
+
+        Instant now = Instant.now();
+        for(SessionBasket basket : baskets.asMap().values()){
+            synchronized(basket){
+                if(!basket.retired){
+                    expire(basket, now);
+                }
+            }
+        }
+
+        // Baskets changed from here on are queued again; ones that fail are retried on the next flush, not in this one
+        List<SessionBasket> batch = new ArrayList<>(batchSize);
+        for(SessionBasket basket : List.copyOf(pending)){
+            pending.remove(basket);
+            batch.add(basket);
+            if(batch.size() == batchSize){
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if(!batch.isEmpty()){
+            write(batch);
+        }
+    }
+
+    // Writes the basket of an ended session and drops it from memory
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event){
+        Object sessionId = event.getSession().getAttribute("sessionId");
+        if(sessionId != null){
+            close((String) sessionId);
+        }
+    }
+
+    // Writes the session's basket now and drops it from memory
+    public void close(String sessionId){
+        baskets.asMap().computeIfPresent(sessionId, (id, basket) -> {
+            retire(basket);
+            return null;
+        });
+    }
+
+    // Writes everything still pending before the application stops
+    @PreDestroy
+    public void shutdown(){
+        flush();
+        logger.info("Session basket store flushed on shutdown, {} baskets left unwritten", pending.size());
+    }
+
+    // Runs a change of one wine on the session's basket, queues the basket for writing and describes the changed line
+    private BasketChange changeLine(String sessionId, Integer wineId, Function<SessionBasket, Wine> change){
+        return withBasket(sessionId, basket -> {
+            Wine wine = change.apply(basket);
+            touched(basket);
+            Line line = basket.lines.get(wineId);
+            return line == null
+                    ? new BasketChange(wine, 0, Money.ZERO, basket.summary())
+                    : new BasketChange(wine, line.quantity(), line.price(), basket.summary());
+        });
+    }
+
+    // Sets the quantities of existing lines. Stock is reserved in one transaction in wine ID order, so a line without
+    // stock leaves every quantity unchanged.
+    private void setQuantities(SessionBasket basket, Map<Integer, Integer> quantitiesByWineId){
+        Map<Integer, Line> lines = new TreeMap<>();
+        quantitiesByWineId.keySet().forEach(wineId -> lines.put(wineId, findLine(basket, wineId)));
+
+        inTransaction(() -> lines.forEach((wineId, line) -> {
+            int difference = quantitiesByWineId.get(wineId) - line.quantity();
+            if(difference > 0){
+                stockReservationService.reserve(line.wine(), difference);
+            }else if(difference < 0){
+                stockReservationService.release(line.wine(), -difference);
+            }
+        }));
+
+        Instant reservedUntil = stockReservationService.nextExpiry();
+        lines.forEach((wineId, line) -> basket.lines.put(wineId, Line.of(line.wine(), quantitiesByWineId.get(wineId), reservedUntil)));
+    }
+
+    // Runs an action on the session's resident basket under its lock, after expiring reservations that ran out.
+    // A basket that left memory in the meantime is loaded again.
+    private <T> T withBasket(String sessionId, Function<SessionBasket, T> action){
+        while(true){
+            SessionBasket basket = baskets.get(sessionId, this::load);
+            synchronized(basket){
+                if(!basket.retired){
+                    expire(basket, Instant.now());
+                    return action.apply(basket);
+                }
+            }
+        }
+    }
+
+    // Builds the in-memory basket from the database; a session without a basket starts empty
+    private SessionBasket load(String sessionId){
+        SessionBasket basket = new SessionBasket(sessionId);
+        for(BasketItem item : basketItemRepository.findAllWithWinesBySessionId(sessionId)){
+            // Stored expiry times lie reservationGrace behind the ones kept in memory
+            Instant reservedUntil = item.getReservedUntil() == null ? null : item.getReservedUntil().minus(reservationGrace);
+            basket.lines.put(item.getWine().getId(), new Line(item.getWine(), item.getQuantity(), item.getLinePrice(), reservedUntil));
+            basket.lastActivityAt = item.getBasket().getLastActivityAt();
+        }
+        return basket;
+    }
+
+    // Releases the stock of lines whose reservation ran out and drops them. Their database copy expires reservationGrace
+    // later, by which time it has been rewritten, so the reservation sweeper never releases the same stock again.
+    private void expire(SessionBasket basket, Instant now){
+        List<BasketItem> expired = basket.lines.values().stream()
+                .filter(line -> line.expiredAt(now))
+                .map(Line::toItem)
+                .toList();
+        if(expired.isEmpty()){
+            return;
+        }
+
+        inTransaction(() -> stockReservationService.releaseAll(expired));
+        basket.lines.values().removeIf(line -> line.expiredAt(now));
+        changed(basket);
+        logger.info("Expired {} reservations in memory for session ID: {}", expired.size(), basket.sessionId);
+    }
+
+    // Records a change made by the visitor
+    private void touched(SessionBasket basket){
+        basket.lastActivityAt = Instant.now();
+        changed(basket);
+    }
+
+    // Records a change made by the visitor or by expiry and queues the basket for writing
+    private void changed(SessionBasket basket){
+        basket.version++;
+        pending.add(basket);
+    }
+
+    // Writes the current state of the given baskets in one transaction. On failure they stay queued for the next flush.
+    private void write(List<SessionBasket> batch){
+        synchronized(writeLock){
+            List<Snapshot> snapshots = new ArrayList<>();
+            for(SessionBasket basket : batch){
+                synchronized(basket){
+                    if(!basket.retired && basket.version != basket.writtenVersion){
+                        snapshots.add(basket.snapshot());
+                    }
+                }
+            }
+            if(snapshots.isEmpty()){
+                return;
+            }
+
+            try{
+                writeSnapshots(snapshots);
+            }catch(RuntimeException ex){
+                logger.warn("Writing {} session baskets failed, retrying on the next flush", snapshots.size(), ex);
+                snapshots.forEach(snapshot -> pending.add(snapshot.basket()));
+            }
+        }
+    }
+
+    // Stops serving the basket from memory and writes its last state
+    private void retire(SessionBasket basket){
+        synchronized(writeLock){
+            Snapshot snapshot;
+            synchronized(basket){
+                basket.retired = true;
+                pending.remove(basket);
+                if(basket.version == basket.writtenVersion){
+                    return;
+                }
+                snapshot = basket.snapshot();
+            }
+
+            try{
+                writeSnapshots(List.of(snapshot));
+            }catch(RuntimeException ex){
+                logger.error("Writing the basket of session ID: {} failed as it left memory; its last changes are lost",
+                        basket.sessionId, ex);
+            }
+        }
+    }
+
+    // Locks the stored baskets, creates missing ones, and updates, inserts and deletes their items to match the
+    // snapshots. Item updates are flushed as one JDBC batch at commit.
+    private void writeSnapshots(List<Snapshot> snapshots){
+        transactionOperations.executeWithoutResult(status -> {
+            Map<String, Basket> stored = new HashMap<>();
+            List<String> sessionIds = snapshots.stream().map(snapshot -> snapshot.basket().sessionId).toList();
+            for(Basket basket : basketRepository.findAllBySessionIdForUpdate(sessionIds)){
+                stored.put(basket.getSessionId(), basket);
+            }
+
+            List<Integer> active = new ArrayList<>();
+            List<Basket> created = new ArrayList<>();
+            for(Snapshot snapshot : snapshots){
+                Basket basket = stored.get(snapshot.basket().sessionId);
+                if(basket != null && snapshot.lastActivityAt() != null
+                        && (basket.getLastActivityAt() == null || basket.getLastActivityAt().isBefore(snapshot.lastActivityAt()))){
+                    active.add(basket.getId());
+                }else if(basket == null && !snapshot.lines().isEmpty()){
+                    basket = new Basket(snapshot.basket().sessionId);
+                    created.add(basket);
+                    stored.put(basket.getSessionId(), basket);
+                }
+            }
+            if(!active.isEmpty()){
+                basketRepository.touchAll(active, Instant.now());
+            }
+            basketRepository.saveAll(created);
+
+            Map<Integer, Map<Integer, BasketItem>> itemsByBasketId = new HashMap<>();
+            for(BasketItem item : basketItemRepository.findByBasketIn(stored.values())){
+                itemsByBasketId.computeIfAbsent(item.getBasket().getId(), id -> new HashMap<>()).put(item.getWine().getId(), item);
+            }
+
+            List<BasketItem> inserted = new ArrayList<>();
+            List<BasketItem> deleted = new ArrayList<>();
+            for(Snapshot snapshot : snapshots){
+                Basket basket = stored.get(snapshot.basket().sessionId);
+                if(basket == null){
+                    continue;
+                }
+
+                Map<Integer, BasketItem> items = itemsByBasketId.getOrDefault(basket.getId(), new HashMap<>());
+                int itemCount = 0;
+                Money totalCost = Money.ZERO;
+                for(Line line : snapshot.lines()){
+                    BasketItem item = items.remove(line.wine().getId());
+                    if(item == null){
+                        item = new BasketItem(wineRepository.getReferenceById(line.wine().getId()), line.quantity(), line.price());
+                        item.setBasket(basket);
+                        inserted.add(item);
+                    }else {
+                        item.setQuantity(line.quantity());
+                        item.setPrice(line.price());
+                    }
+                    item.setReservedUntil(line.reservedUntil() == null ? null : line.reservedUntil().plus(reservationGrace));
+                    itemCount += line.quantity();
+                    totalCost = totalCost.plus(line.price());
+                }
+                deleted.addAll(items.values());
+                basket.resetTotals(itemCount, totalCost);
+            }
+
+            if(!deleted.isEmpty()){
+                basketItemRepository.deleteAllInBatch(deleted);
+            }
+            basketItemRepository.saveAll(inserted);
+        });
+
+        for(Snapshot snapshot : snapshots){
+            SessionBasket basket = snapshot.basket();
+            synchronized(basket){
+                basket.writtenVersion = Math.max(basket.writtenVersion, snapshot.version());
+            }
+        }
+        written.increment(snapshots.size());
+        logger.info("Wrote {} session baskets to the database", snapshots.size());
+    }
+
+    private void inTransaction(Runnable action){
+        transactionOperations.executeWithoutResult(status -> action.run());
+    }
+
+    // Finds a wine by ID or throws a WineNotFoundException if not found.
+    private Wine findWineById(Integer wineId){
+        return wineRepository.findById(wineId)
+                .orElseThrow(() -> {
+                    logger.warn("Wine not found for ID: {}", wineId);
+                    return new WineNotFoundException("Wine not found for ID: " + wineId);
+                });
+    }
+
+    // Finds a line of the basket by wine or throws a BasketItemNotFoundException if not found.
+    private Line findLine(SessionBasket basket, Integer wineId){
+        Line line = basket.lines.get(wineId);
+        if(line == null){
+            logger.warn("Basket item not found for wine ID: {}", wineId);
+            throw new BasketItemNotFoundException("Basket item not found for wine ID: " + wineId);
+        }
+        return line;
+    }
+
+    // A session's basket as held in memory, guarded by its own monitor. version counts changes, writtenVersion the
+    // last one stored in the database.
+    private static final class SessionBasket {
+
+        private final String sessionId;
+        private final Map<Integer, Line> lines = new TreeMap<>();
+        private Instant lastActivityAt;
+        private long version;
+        private long writtenVersion;
+        private boolean retired;
+
+        private SessionBasket(String sessionId){
+            this.sessionId = sessionId;
+        }
+
+        Snapshot snapshot(){
+            return new Snapshot(this, version, lastActivityAt, List.copyOf(lines.values()));
+        }
+
+        BasketSummary summary(){
+            int itemCount = 0;
+            Money totalCost = Money.ZERO;
+            for(Line line : lines.values()){
+                itemCount += line.quantity();
+                totalCost = totalCost.plus(line.price());
+            }
+            return new BasketSummary(itemCount, totalCost, lastActivityAt);
+        }
+    }
+
+    // One wine in a basket; replaced as a whole on every change
+    private record Line(Wine wine, int quantity, Money price, Instant reservedUntil) {
+
+        static Line of(Wine wine, int quantity, Instant reservedUntil){
+            return new Line(wine, quantity, Money.of(wine.getPrice()).times(quantity), reservedUntil);
+        }
+
+        boolean expiredAt(Instant now){
+            return reservedUntil != null && reservedUntil.isBefore(now);
+        }
+
+        // Detached item for views
+        BasketItem toItem(){
+            BasketItem item = new BasketItem(wine, quantity, price);
+            item.setReservedUntil(reservedUntil);
+            return item;
+        }
+    }
+
+    // State of a basket taken for one write
+    private record Snapshot(SessionBasket basket, long version, Instant lastActivityAt, List<Line> lines) {
+    }
+}
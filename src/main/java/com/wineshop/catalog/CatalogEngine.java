@@ -0,0 +1,14 @@
+package com.wineshop.catalog;
+
+// Selects how catalog filters are evaluated
+public enum CatalogEngine {
+
+    // JPA Criteria query against the database
+    SQL,
+
+    // In-memory bitset index over a snapshot of all wines
+    INDEX,
+
+    // Query against the denormalized wine_listing table, without joins or dictionary lookups
+    LISTING
+}
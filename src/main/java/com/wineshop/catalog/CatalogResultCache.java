@@ -0,0 +1,113 @@
+package com.wineshop.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.DictionaryChangedEvent;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded cache of catalog query results keyed by canonical filter criteria and page request.
+// An entry is evicted when a changed wine is part of its result or now matches its filter; other entries stay valid.
+// The facet rows cover the whole catalog, so any wine change evicts them.
+@Component
+public class CatalogResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogResultCache.class);
+
+    private static final Key FACET_ROWS = new Key(new WineFilter(null, null, null, null, null), null, true);
+
+    private final Cache<Key, Entry> cache;
+    private final PrimaryReads primaryReads;
+
+    // Counts evictions. A result loaded while it moved may predate a change, so it is not kept.
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CatalogResultCache(MeterRegistry meterRegistry, PrimaryReads primaryReads,
+                              @Value("${wineshop.catalog.cache.maximum-size:1000}") long maximumSize,
+                              @Value("${wineshop.catalog.cache.ttl:PT10M}") Duration ttl){
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wineCatalog");
+        this.primaryReads = primaryReads;
+    }
+
+    // Returns the cached result for the criteria or loads it. ids lists every wine the result was built from.
+    // pageRequest is null for unpaged results. Loads read the primary: a result cached from a lagging replica would
+    // outlive the lag.
+    public <T> T get(WineFilter filter, WinePageRequest pageRequest, Supplier<T> loader, Function<T, Collection<Integer>> ids){
+        Key key = new Key(filter.canonical(), pageRequest == null ? null
+                : new WinePageRequest(pageRequest.sortOrDefault(), pageRequest.after(), pageRequest.before(), pageRequest.size()), false);
+        return get(key, loader, ids);
+    }
+
+    // Returns the cached facet rows of the whole catalog or loads them. They do not depend on the selection, which is
+    // applied to them in memory, so one entry serves every filter.
+    public List<FacetRow> facetRows(Supplier<List<FacetRow>> loader){
+        return get(FACET_ROWS, loader, rows -> Set.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader, Function<T, Collection<Integer>> ids){
+        long generation = evictions.get();
+        boolean[] loaded = new boolean[1];
+        Entry entry = cache.get(key, k -> {
+            T value = primaryReads.read(loader);
+            loaded[0] = true;
+            return new Entry(value, Set.copyOf(ids.apply(value)));
+        });
+
+        // Evictions bump the counter before removing entries, so either they see this entry or this check sees them
+        if(loaded[0] && evictions.get() != generation){
+            cache.asMap().remove(key, entry);
+            logger.info("Dropped catalog result loaded during an eviction");
+        }
+        return (T) entry.value();
+    }
+
+    public void invalidateAll(){
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // Evicts entries affected by a committed wine change
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWineChanged(WineChangedEvent event){
+        Wine wine = event.wine();
+        evictions.incrementAndGet();
+        long before = cache.estimatedSize();
+        cache.asMap().entrySet().removeIf(entry -> entry.getKey().wholeCatalog() || entry.getValue().wineIds().contains(wine.getId())
+                || (!event.removed() && entry.getKey().filter().matches(wine)));
+        logger.info("Catalog result cache evicted {} entries for wine ID: {}", before - cache.estimatedSize(), wine.getId());
+    }
+
+    // Dictionary names appear in cached listings, so any dictionary change drops everything
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDictionaryChanged(DictionaryChangedEvent event){
+        invalidateAll();
+    }
+
+    private record Key(WineFilter filter, WinePageRequest pageRequest, boolean wholeCatalog) {
+    }
+
+    private record Entry(Object value, Set<Integer> wineIds) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.wineshop.catalog;
+
+import com.wineshop.reference.ReferenceData;
+
+import java.math.BigDecimal;
+
+// Number of wines sharing one combination of color, flavour and type IDs and price
+public record FacetIdRow(Integer colorId, Integer flavourId, Integer typeId, BigDecimal price, Long count) {
+
+    // Replaces dictionary IDs with their names
+    public FacetRow resolve(ReferenceData referenceData){
+        return new FacetRow(
+                referenceData.colors().nameOf(colorId),
+                referenceData.flavours().nameOf(flavourId),
+                referenceData.types().nameOf(typeId),
+                price, count);
+    }
+}
@@ -0,0 +1,7 @@
+package com.wineshop.catalog;
+
+import java.math.BigDecimal;
+
+// Number of wines sharing one combination of color, flavour, type and price
+public record FacetRow(String color, String flavour, String type, BigDecimal price, Long count) {
+}
@@ -0,0 +1,38 @@
+package com.wineshop.catalog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Splits Polish text into search terms: lower case, diacritics folded ("Półsłodkie" -> "polslodkie")
+public final class PolishTextAnalyzer {
+
+    private static final Locale POLISH = Locale.forLanguageTag("pl");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private PolishTextAnalyzer(){
+    }
+
+    public static List<String> tokenize(String text){
+        List<String> tokens = new ArrayList<>();
+        if(text == null || text.isBlank()){
+            return tokens;
+        }
+
+        for(String token : SEPARATORS.split(fold(text))){
+            if(!token.isEmpty()){
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // "ł" has no Unicode decomposition, so it is mapped before stripping combining marks
+    static String fold(String text){
+        String lowerCase = text.toLowerCase(POLISH).replace('ł', 'l');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lowerCase, Normalizer.Form.NFD)).replaceAll("");
+    }
+}
@@ -0,0 +1,60 @@
+package com.wineshop.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+
+// Price ranges offered by the search form, with inclusive min and max prices
+public enum PriceRange {
+
+    UNDER_20("<20", null, BigDecimal.valueOf(20)),
+    FROM_20_TO_30("20-30", BigDecimal.valueOf(20), BigDecimal.valueOf(30)),
+    FROM_30_TO_40("30-40", BigDecimal.valueOf(30), BigDecimal.valueOf(40)),
+    FROM_40_TO_50("40-50", BigDecimal.valueOf(40), BigDecimal.valueOf(50)),
+    OVER_50(">50", BigDecimal.valueOf(50), null);
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceRange.class);
+
+    private final String label;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+
+    PriceRange(String label, BigDecimal minPrice, BigDecimal maxPrice){
+        this.label = label;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    // Finds the range for a form value such as "20-30". Returns null for blank or unknown values.
+    public static PriceRange fromLabel(String label){
+        if(label == null || label.trim().isEmpty()){
+            return null;
+        }
+        for(PriceRange range : values()){
+            if(range.label.equals(label)){
+                return range;
+            }
+        }
+        logger.warn("Unknown price range: {}", label);
+        return null;
+    }
+
+    public String label(){
+        return label;
+    }
+
+    public BigDecimal minPrice(){
+        return minPrice;
+    }
+
+    public BigDecimal maxPrice(){
+        return maxPrice;
+    }
+
+    // Same inclusive bounds as WineSpecification.hasPriceBetween
+    public boolean contains(BigDecimal price){
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+}
@@ -0,0 +1,53 @@
+package com.wineshop.catalog;
+
+import java.util.Comparator;
+import java.util.Map;
+
+// Orders text search results by BM25 score, best first, with wine ID as the tie-breaker
+public class RelevanceOrder implements WineOrder {
+
+    private final Map<Integer, Double> scores;
+
+    public RelevanceOrder(Map<Integer, Double> scores){
+        this.scores = scores;
+    }
+
+    @Override
+    public String param(){
+        return "relevance";
+    }
+
+    @Override
+    public Comparator<WineListing> comparator(){
+        return (first, second) -> compare(score(first), first.getId(), score(second), second.getId());
+    }
+
+    @Override
+    public WineCursor cursor(WineListing wine){
+        return new WineCursor(param(), Double.toString(score(wine)), wine.getId());
+    }
+
+    @Override
+    public boolean accepts(WineCursor cursor){
+        try {
+            Double.parseDouble(cursor.key());
+            return WineOrder.super.accepts(cursor);
+        }catch (NumberFormatException ex){
+            return false;
+        }
+    }
+
+    @Override
+    public int compare(WineListing wine, WineCursor cursor){
+        return compare(score(wine), wine.getId(), Double.parseDouble(cursor.key()), cursor.id());
+    }
+
+    private double score(WineListing wine){
+        return scores.getOrDefault(wine.getId(), 0.0);
+    }
+
+    private static int compare(double firstScore, int firstId, double secondScore, int secondId){
+        int comparison = Double.compare(secondScore, firstScore);
+        return comparison != 0 ? comparison : Integer.compare(firstId, secondId);
+    }
+}
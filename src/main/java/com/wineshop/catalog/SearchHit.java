@@ -0,0 +1,5 @@
+package com.wineshop.catalog;
+
+// Wine matched by a text query with its BM25 score
+public record SearchHit(int wineId, double score) {
+}
@@ -0,0 +1,194 @@
+package com.wineshop.catalog;
+
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.Function;
+
+// In-memory catalog index: one bitset per color, flavour and type plus a price-sorted array for range lookups
+@Component
+public class WineCatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(WineCatalogIndex.class);
+
+    private final WineRepository wineRepository;
+    private final PrimaryReads primaryReads;
+
+    private volatile Snapshot snapshot;
+
+    public WineCatalogIndex(WineRepository wineRepository, PrimaryReads primaryReads){
+        this.wineRepository = wineRepository;
+        this.primaryReads = primaryReads;
+    }
+
+    // Returns wines matching the filter, ordered by ID. Builds the snapshot on first use.
+    public List<Wine> filter(WineFilter filter){
+        Snapshot current = snapshot;
+        if(current == null){
+            current = load();
+        }
+
+        BitSet matches = current.match(filter);
+        List<Wine> wines = new ArrayList<>(matches.cardinality());
+        for(int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)){
+            wines.add(current.wines[i]);
+        }
+        return wines;
+    }
+
+    // Reloads all wines from the primary and replaces the snapshot
+    public synchronized void rebuild(){
+        Snapshot rebuilt = primaryReads.read(() -> Snapshot.of(wineRepository.findAll()));
+        snapshot = rebuilt;
+        logger.info("Catalog index rebuilt with {} wines", rebuilt.wines.length);
+    }
+
+    // Patches the snapshot after a wine was saved or removed. Ignored until the index is first used.
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onWineChanged(WineChangedEvent event){
+        Snapshot current = snapshot;
+        if(current == null){
+            return;
+        }
+
+        snapshot = current.patch(event.wine(), event.removed());
+        logger.info("Catalog index patched for wine ID: {}", event.wine().getId());
+    }
+
+    // Returns the current snapshot, building it if another thread has not done so already
+    private synchronized Snapshot load(){
+        if(snapshot == null){
+            rebuild();
+        }
+        return snapshot;
+    }
+
+    // Converts a price to grosze, rounding with the given mode
+    static long toMinorUnits(BigDecimal price, RoundingMode roundingMode){
+        return price.movePointRight(2).setScale(0, roundingMode).longValueExact();
+    }
+
+    // Immutable view of the catalog; replaced as a whole whenever a wine changes
+    private static final class Snapshot {
+
+        private final Wine[] wines;
+        private final Map<String, BitSet> byColor;
+        private final Map<String, BitSet> byFlavour;
+        private final Map<String, BitSet> byType;
+        private final long[] sortedPrices;
+        private final int[] priceOrder;
+
+        private Snapshot(Wine[] wines){
+            this.wines = wines;
+            this.byColor = bitsets(wines, wine -> wine.getColor() == null ? null : wine.getColor().getName());
+            this.byFlavour = bitsets(wines, wine -> wine.getFlavour() == null ? null : wine.getFlavour().getName());
+            this.byType = bitsets(wines, wine -> wine.getType() == null ? null : wine.getType().getName());
+
+            Integer[] order = new Integer[wines.length];
+            for(int i = 0; i < wines.length; i++){
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(i -> wines[i].getPrice()));
+
+            this.sortedPrices = new long[wines.length];
+            this.priceOrder = new int[wines.length];
+            for(int i = 0; i < order.length; i++){
+                priceOrder[i] = order[i];
+                sortedPrices[i] = toMinorUnits(wines[order[i]].getPrice(), RoundingMode.HALF_UP);
+            }
+        }
+
+        static Snapshot of(Collection<Wine> wines){
+            Wine[] sorted = wines.toArray(new Wine[0]);
+            Arrays.sort(sorted, Comparator.comparingInt(Wine::getId));
+            return new Snapshot(sorted);
+        }
+
+        // Returns a new snapshot with the given wine replaced, added or removed
+        Snapshot patch(Wine changed, boolean removed){
+            Map<Integer, Wine> byId = new HashMap<>();
+            for(Wine wine : wines){
+                byId.put(wine.getId(), wine);
+            }
+            if(removed){
+                byId.remove(changed.getId());
+            }else {
+                byId.put(changed.getId(), changed);
+            }
+            return of(byId.values());
+        }
+
+        BitSet match(WineFilter filter){
+            BitSet result = new BitSet(wines.length);
+            result.set(0, wines.length);
+
+            and(result, byColor, filter.color());
+            and(result, byFlavour, filter.flavour());
+            and(result, byType, filter.type());
+
+            if(filter.minPrice() != null || filter.maxPrice() != null){
+                result.and(priceRange(filter.minPrice(), filter.maxPrice()));
+            }
+            return result;
+        }
+
+        // Collects wines with a price within [minPrice, maxPrice] using binary search over sorted prices
+        private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice){
+            int from = minPrice == null ? 0 : lowerBound(toMinorUnits(minPrice, RoundingMode.CEILING));
+            int to = maxPrice == null ? sortedPrices.length : lowerBound(toMinorUnits(maxPrice, RoundingMode.FLOOR) + 1);
+
+            BitSet bits = new BitSet(wines.length);
+            for(int i = from; i < to; i++){
+                bits.set(priceOrder[i]);
+            }
+            return bits;
+        }
+
+        // Index of the first price greater than or equal to the given value
+        private int lowerBound(long value){
+            int low = 0;
+            int high = sortedPrices.length;
+            while(low < high){
+                int mid = (low + high) >>> 1;
+                if(sortedPrices[mid] < value){
+                    low = mid + 1;
+                }else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static void and(BitSet result, Map<String, BitSet> index, String value){
+            if(value == null){
+                return;
+            }
+            BitSet bits = index.get(value);
+            if(bits == null){
+                result.clear();
+            }else {
+                result.and(bits);
+            }
+        }
+
+        private static Map<String, BitSet> bitsets(Wine[] wines, Function<Wine, String> key){
+            Map<String, BitSet> bitsets = new HashMap<>();
+            for(int i = 0; i < wines.length; i++){
+                String value = key.apply(wines[i]);
+                if(value != null){
+                    bitsets.computeIfAbsent(value, k -> new BitSet(wines.length)).set(i);
+                }
+            }
+            return bitsets;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.wineshop.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Keyset position in a sorted catalog listing: the order it was written by, and the sort key and ID of the last wine seen
+public record WineCursor(String order, String key, int id) {
+
+    // Decodes an opaque cursor token, returning null if it is missing or malformed
+    public static WineCursor decode(String token){
+        if(token == null || token.isBlank()){
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int orderEnd = value.indexOf(':');
+            int idEnd = value.indexOf(':', orderEnd + 1);
+            return new WineCursor(value.substring(0, orderEnd), value.substring(idEnd + 1),
+                    Integer.parseInt(value.substring(orderEnd + 1, idEnd)));
+        }catch (IllegalArgumentException | IndexOutOfBoundsException ex){
+            return null;
+        }
+    }
+
+    // The key goes last, since a wine name may itself contain the separator
+    public String encode(){
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((order + ":" + id + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package com.wineshop.catalog;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Number of matching wines for every facet value, given the selection on the other facets
+public record WineFacets(Map<String, Long> colors, Map<String, Long> flavours, Map<String, Long> types, Map<String, Long> prices) {
+
+    // Counts all facets in one pass over grouped rows. Each facet ignores its own selection, so the form
+    // shows how many wines picking another value would return.
+    public static WineFacets count(List<FacetRow> rows, WineFilter filter){
+        Map<String, Long> colors = new HashMap<>();
+        Map<String, Long> flavours = new HashMap<>();
+        Map<String, Long> types = new HashMap<>();
+        Map<String, Long> prices = new LinkedHashMap<>();
+        for(PriceRange range : PriceRange.values()){
+            prices.put(range.label(), 0L);
+        }
+
+        for(FacetRow row : rows){
+            boolean colorMatches = matches(filter.color(), row.color());
+            boolean flavourMatches = matches(filter.flavour(), row.flavour());
+            boolean typeMatches = matches(filter.type(), row.type());
+            boolean priceMatches = inRange(row.price(), filter.minPrice(), filter.maxPrice());
+
+            if(flavourMatches && typeMatches && priceMatches && row.color() != null){
+                colors.merge(row.color(), row.count(), Long::sum);
+            }
+            if(colorMatches && typeMatches && priceMatches && row.flavour() != null){
+                flavours.merge(row.flavour(), row.count(), Long::sum);
+            }
+            if(colorMatches && flavourMatches && priceMatches && row.type() != null){
+                types.merge(row.type(), row.count(), Long::sum);
+            }
+            if(colorMatches && flavourMatches && typeMatches){
+                for(PriceRange range : PriceRange.values()){
+                    if(range.contains(row.price())){
+                        prices.merge(range.label(), row.count(), Long::sum);
+                    }
+                }
+            }
+        }
+        return new WineFacets(colors, flavours, types, prices);
+    }
+
+    public long color(String value){
+        return colors.getOrDefault(value, 0L);
+    }
+
+    public long flavour(String value){
+        return flavours.getOrDefault(value, 0L);
+    }
+
+    public long type(String value){
+        return types.getOrDefault(value, 0L);
+    }
+
+    public long price(String range){
+        return prices.getOrDefault(range, 0L);
+    }
+
+    private static boolean matches(String selected, String value){
+        return selected == null || selected.equals(value);
+    }
+
+    // Same inclusive bounds as WineSpecification.hasPriceBetween
+    private static boolean inRange(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice){
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.wineshop.catalog;
+
+import com.wineshop.model.Wine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+
+// Catalog filter criteria. Blank values (including the " " sent by the search form) mean "no filter".
+public record WineFilter(String color, String flavour, String type, BigDecimal minPrice, BigDecimal maxPrice) {
+
+    private static final Logger logger = LoggerFactory.getLogger(WineFilter.class);
+
+    public WineFilter {
+        color = normalize(color);
+        flavour = normalize(flavour);
+        type = normalize(type);
+    }
+
+    // Builds a filter from form values. Explicit min/max prices take precedence over the price range bucket.
+    public static WineFilter of(String color, String flavour, String type, String priceRange,
+                                BigDecimal minPrice, BigDecimal maxPrice){
+        if(minPrice == null && maxPrice == null){
+            PriceRange range = PriceRange.fromLabel(priceRange);
+            if(range != null){
+                minPrice = range.minPrice();
+                maxPrice = range.maxPrice();
+            }
+        }
+
+        logger.info("Mapped priceRange '{}' to minPrice={}, maxPrice={}", priceRange, minPrice, maxPrice);
+        return new WineFilter(color, flavour, type, minPrice, maxPrice);
+    }
+
+    // Same criteria with prices stripped of trailing zeros, so "20" and "20.00" produce equal filters
+    public WineFilter canonical(){
+        return new WineFilter(color, flavour, type,
+                minPrice == null ? null : minPrice.stripTrailingZeros(),
+                maxPrice == null ? null : maxPrice.stripTrailingZeros());
+    }
+
+    // Tells whether a loaded wine passes this filter, using the same inclusive price bounds as the queries
+    public boolean matches(Wine wine){
+        return matches(color, wine.getColor() == null ? null : wine.getColor().getName())
+                && matches(flavour, wine.getFlavour() == null ? null : wine.getFlavour().getName())
+                && matches(type, wine.getType() == null ? null : wine.getType().getName())
+                && (minPrice == null || wine.getPrice().compareTo(minPrice) >= 0)
+                && (maxPrice == null || wine.getPrice().compareTo(maxPrice) <= 0);
+    }
+
+    private static boolean matches(String selected, String value){
+        return selected == null || selected.equals(value);
+    }
+
+    private static String normalize(String value){
+        return value == null || value.isBlank() ? null : value;
+    }
+}
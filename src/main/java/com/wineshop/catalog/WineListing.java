@@ -0,0 +1,29 @@
+package com.wineshop.catalog;
+
+import com.wineshop.model.Wine;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+// Read model for catalog listings: only the columns shown on a wine card plus the joined dictionary names.
+// Built straight from query results, so it is never managed, dirty-checked or kept in the persistence context.
+@Value
+public class WineListing {
+
+    int id;
+    String name;
+    BigDecimal price;
+    String imagePath;
+    BigDecimal alcoholContent;
+    String color;
+    String flavour;
+    String type;
+
+    // Listing of a wine that is already loaded, e.g. from the in-memory catalog index
+    public static WineListing of(Wine wine){
+        return new WineListing(wine.getId(), wine.getName(), wine.getPrice(), wine.getImagePath(), wine.getAlcoholContent(),
+                wine.getColor() == null ? null : wine.getColor().getName(),
+                wine.getFlavour() == null ? null : wine.getFlavour().getName(),
+                wine.getType() == null ? null : wine.getType().getName());
+    }
+}
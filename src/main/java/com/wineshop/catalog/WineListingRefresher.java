@@ -0,0 +1,105 @@
+package com.wineshop.catalog;
+
+import com.wineshop.event.DictionaryChangedEvent;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Type;
+import com.wineshop.repository.WineListingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+// Keeps the wine_listing table in step with wines and dictionaries. A committed change rewrites only the rows it
+// touches, in a transaction of its own. It runs before the other listeners, so the result cache is evicted only
+// once the new rows are in place.
+// Only writes made through JPA publish change events. Rows left behind by anything else (SQL scripts, another
+// application, a crash between commit and refresh) are found by a reconcile at startup and on a fixed delay, which then
+// rewrites the whole table.
+@Component
+public class WineListingRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WineListingRefresher.class);
+
+    private final WineListingRepository wineListingRepository;
+    private final CatalogResultCache resultCache;
+    private final TransactionOperations transactionOperations;
+
+    public WineListingRefresher(WineListingRepository wineListingRepository, CatalogResultCache resultCache,
+                                TransactionOperations transactionOperations){
+        this.wineListingRepository = wineListingRepository;
+        this.resultCache = resultCache;
+        this.transactionOperations = transactionOperations;
+    }
+
+    // Rewrites the row of a saved wine. A removed wine's row is deleted with it by the foreign key.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onWineChanged(WineChangedEvent event){
+        if(event.removed()){
+            return;
+        }
+        int wineId = event.wine().getId();
+        wineListingRepository.deleteRow(wineId);
+        wineListingRepository.insertRow(wineId);
+        logger.info("Refreshed listing row of wine ID: {}", wineId);
+    }
+
+    // Copies a saved dictionary name into the rows of its wines. Grapes are not part of the listing.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onDictionaryChanged(DictionaryChangedEvent event){
+        int rows;
+        if(event.dictionary() instanceof Color color){
+            rows = wineListingRepository.renameColor(color.getId(), color.getName());
+        }else if(event.dictionary() instanceof Flavour flavour){
+            rows = wineListingRepository.renameFlavour(flavour.getId(), flavour.getName());
+        }else if(event.dictionary() instanceof Type type){
+            rows = wineListingRepository.renameType(type.getId(), type.getName());
+        }else {
+            return;
+        }
+        logger.info("Refreshed {} listing rows for {}", rows, event.dictionary());
+    }
+
+    // Repairs drift left while the application was down
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(){
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${wineshop.catalog.listing.reconcile-interval:PT1H}")
+    public void scheduledReconcile(){
+        reconcile();
+    }
+
+    // Rewrites every row when any row is missing or stale, and returns the number of stale rows found
+    public long reconcile(){
+        long stale = transactionOperations.execute(status -> {
+            long found = wineListingRepository.countStaleRows();
+            if(found > 0){
+                wineListingRepository.deleteAllRows();
+                wineListingRepository.insertAllRows();
+            }
+            return found;
+        });
+
+        if(stale > 0){
+            resultCache.invalidateAll();
+            logger.warn("Rebuilt wine listing after finding {} stale rows", stale);
+        }
+        return stale;
+    }
+}
@@ -0,0 +1,24 @@
+package com.wineshop.catalog;
+
+import java.util.Comparator;
+
+// Total order over wine listings that can be resumed from a keyset cursor
+public interface WineOrder {
+
+    // Name written into this order's cursors, e.g. the "sort" request parameter
+    String param();
+
+    Comparator<WineListing> comparator();
+
+    // Cursor pointing at the given wine
+    WineCursor cursor(WineListing wine);
+
+    // Compares a wine with a cursor position: positive when the wine comes after the cursor
+    int compare(WineListing wine, WineCursor cursor);
+
+    // Tells whether a cursor can resume this order. One written by another order points at a position in a different
+    // sequence, even when its key happens to parse.
+    default boolean accepts(WineCursor cursor){
+        return param().equals(cursor.order());
+    }
+}
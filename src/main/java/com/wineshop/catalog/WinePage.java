@@ -0,0 +1,29 @@
+package com.wineshop.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One page of a sorted catalog listing with opaque cursors to the neighbouring pages
+public record WinePage(List<WineListing> wines, String nextCursor, String previousCursor) {
+
+    // Builds a page from up to size + 1 wines fetched in traversal order (reversed when paging backwards)
+    public static WinePage of(List<WineListing> fetched, WinePageRequest request, WineOrder order){
+        boolean hasMore = fetched.size() > request.size();
+        List<WineListing> wines = new ArrayList<>(hasMore ? fetched.subList(0, request.size()) : fetched);
+
+        if(request.backwards()){
+            Collections.reverse(wines);
+        }
+        if(wines.isEmpty()){
+            return new WinePage(wines, null, null);
+        }
+
+        boolean hasNext = request.backwards() || hasMore;
+        boolean hasPrevious = request.backwards() ? hasMore : request.after() != null;
+
+        return new WinePage(wines,
+                hasNext ? order.cursor(wines.get(wines.size() - 1)).encode() : null,
+                hasPrevious ? order.cursor(wines.get(0)).encode() : null);
+    }
+}
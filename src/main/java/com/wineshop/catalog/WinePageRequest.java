@@ -0,0 +1,47 @@
+package com.wineshop.catalog;
+
+// Requested catalog page: sort order (null for the default), optional keyset cursor and page size capped at MAX_SIZE
+public record WinePageRequest(WineSort sort, WineCursor after, WineCursor before, int size) {
+
+    public static final int DEFAULT_SIZE = 24;
+    public static final int MAX_SIZE = 48;
+
+    public WinePageRequest {
+        size = size < 1 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+        if(after != null){
+            before = null;
+        }
+    }
+
+    // Builds a page request from raw request parameters
+    public static WinePageRequest of(String sort, String after, String before, Integer size){
+        return new WinePageRequest(WineSort.fromParam(sort), WineCursor.decode(after), WineCursor.decode(before),
+                size == null ? DEFAULT_SIZE : size);
+    }
+
+    // Same request without cursors the given order cannot resume, which therefore start from the first page like
+    // malformed ones. Applied once the order is known, since a text search without a sort orders by relevance.
+    public WinePageRequest forOrder(WineOrder order){
+        WineCursor acceptedAfter = after != null && order.accepts(after) ? after : null;
+        WineCursor acceptedBefore = before != null && order.accepts(before) ? before : null;
+        return acceptedAfter == after && acceptedBefore == before ? this
+                : new WinePageRequest(sort, acceptedAfter, acceptedBefore, size);
+    }
+
+    public static WinePageRequest firstPage(){
+        return new WinePageRequest(null, null, null, DEFAULT_SIZE);
+    }
+
+    public WineSort sortOrDefault(){
+        return sort == null ? WineSort.DEFAULT : sort;
+    }
+
+    // True when paging towards the start of the listing
+    public boolean backwards(){
+        return before != null;
+    }
+
+    public WineCursor cursor(){
+        return backwards() ? before : after;
+    }
+}
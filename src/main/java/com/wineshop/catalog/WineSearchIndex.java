@@ -0,0 +1,192 @@
+package com.wineshop.catalog;
+
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process inverted index over wine name, description and pairing, ranked with BM25
+@Component
+public class WineSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(WineSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final WineRepository wineRepository;
+    private final PrimaryReads primaryReads;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> wine ID -> term frequency
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    // wine ID -> term frequencies, kept to remove a wine's postings when it changes
+    private final Map<Integer, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Integer, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+    private volatile boolean built;
+
+    // Changes committed while a rebuild loads its snapshot, applied on top of it once it is installed
+    private final List<WineChangedEvent> pendingChanges = new ArrayList<>();
+    private boolean rebuilding;
+
+    public WineSearchIndex(WineRepository wineRepository, PrimaryReads primaryReads){
+        this.wineRepository = wineRepository;
+        this.primaryReads = primaryReads;
+    }
+
+    // Returns wines matching any query term, best match first. Builds the index on first use.
+    public List<SearchHit> search(String query){
+        List<String> terms = PolishTextAnalyzer.tokenize(query).stream().distinct().toList();
+        if(terms.isEmpty()){
+            return List.of();
+        }
+        ensureBuilt();
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+            Map<Integer, Double> scores = new HashMap<>();
+
+            for(String term : terms){
+                Map<Integer, Integer> termPostings = postings.get(term);
+                if(termPostings == null){
+                    continue;
+                }
+
+                double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                termPostings.forEach((wineId, frequency) -> {
+                    double lengthNorm = 1 - B + B * documentLengths.get(wineId) / averageLength;
+                    double score = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                    scores.merge(wineId, score, Double::sum);
+                });
+            }
+
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            scores.forEach((wineId, score) -> hits.add(new SearchHit(wineId, score)));
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed().thenComparingInt(SearchHit::wineId));
+
+            logger.info("Text search '{}' matched {} wines", query, hits.size());
+            return hits;
+        }finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Reloads all wines from the primary and rebuilds the index. The query runs outside the lock, so changes committed
+    // meanwhile are buffered and replayed over the new snapshot; replaying one the snapshot already holds is harmless.
+    public void rebuild(){
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            pendingChanges.clear();
+        }finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Wine> wines;
+        try {
+            wines = primaryReads.read(wineRepository::findAll);
+        }catch (RuntimeException ex){
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                pendingChanges.clear();
+            }finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            wines.forEach(this::add);
+            pendingChanges.forEach(this::apply);
+            logger.info("Search index rebuilt with {} wines and {} changes made during the rebuild", wines.size(), pendingChanges.size());
+            pendingChanges.clear();
+            rebuilding = false;
+            built = true;
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-indexes a single wine after it was saved or removed. Held back while a rebuild is loading and ignored until
+    // the index is first used, since the first build reads the change from the database anyway.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWineChanged(WineChangedEvent event){
+        lock.writeLock().lock();
+        try {
+            if(rebuilding){
+                pendingChanges.add(event);
+            }else if(built){
+                apply(event);
+            }
+        }finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(WineChangedEvent event){
+        remove(event.wine().getId());
+        if(!event.removed()){
+            add(event.wine());
+        }
+    }
+
+    private void ensureBuilt(){
+        if(built){
+            return;
+        }
+        synchronized (this){
+            if(!built){
+                rebuild();
+            }
+        }
+    }
+
+    private void add(Wine wine){
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(PolishTextAnalyzer.tokenize(wine.getName()));
+        tokens.addAll(PolishTextAnalyzer.tokenize(wine.getDescription()));
+        tokens.addAll(PolishTextAnalyzer.tokenize(wine.getPairing()));
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(wine.getId(), frequency));
+        documents.put(wine.getId(), frequencies);
+        documentLengths.put(wine.getId(), tokens.size());
+        totalLength += tokens.size();
+    }
+
+    private void remove(int wineId){
+        Map<String, Integer> frequencies = documents.remove(wineId);
+        if(frequencies == null){
+            return;
+        }
+
+        frequencies.keySet().forEach(term -> {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            termPostings.remove(wineId);
+            if(termPostings.isEmpty()){
+                postings.remove(term);
+            }
+        });
+        totalLength -= documentLengths.remove(wineId);
+    }
+}
@@ -0,0 +1,121 @@
+package com.wineshop.catalog;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Locale;
+
+// Stable catalog sort orders. Wine ID is always the tie-breaker, so every sort is a total order usable as a keyset.
+public enum WineSort implements WineOrder {
+
+    PRICE_ASC(Key.PRICE, false),
+    PRICE_DESC(Key.PRICE, true),
+    NAME_ASC(Key.NAME, false),
+    NAME_DESC(Key.NAME, true),
+    ALCOHOL_ASC(Key.ALCOHOL, false),
+    ALCOHOL_DESC(Key.ALCOHOL, true);
+
+    public static final WineSort DEFAULT = PRICE_ASC;
+
+    private final Key key;
+    private final boolean descending;
+
+    WineSort(Key key, boolean descending){
+        this.key = key;
+        this.descending = descending;
+    }
+
+    // Parses the "sort" request parameter (e.g. "price_desc"). Returns null when missing or unknown.
+    public static WineSort fromParam(String param){
+        if(param == null || param.isBlank()){
+            return null;
+        }
+        try {
+            return valueOf(param.trim().toUpperCase(Locale.ROOT));
+        }catch (IllegalArgumentException ex){
+            return null;
+        }
+    }
+
+    @Override
+    public String param(){
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean descending(){
+        return descending;
+    }
+
+    // Sort key as a JPA expression, over wines or wine_listing rows (both name the attributes alike)
+    public Expression<? extends Comparable<?>> key(Root<?> root, CriteriaBuilder criteriaBuilder){
+        return switch (key) {
+            case PRICE -> root.get("price");
+            case NAME -> root.get("name");
+            case ALCOHOL -> criteriaBuilder.coalesce(root.<BigDecimal>get("alcoholContent"), BigDecimal.ZERO);
+        };
+    }
+
+    // Sort key of a listed wine
+    public Comparable<?> key(WineListing wine){
+        return switch (key) {
+            case PRICE -> wine.getPrice();
+            case NAME -> wine.getName();
+            case ALCOHOL -> wine.getAlcoholContent() == null ? BigDecimal.ZERO : wine.getAlcoholContent();
+        };
+    }
+
+    // Restores a sort key written into a cursor
+    public Comparable<?> parseKey(String value){
+        return key == Key.NAME ? value : new BigDecimal(value);
+    }
+
+    // Also checks the key parses, so a tampered cursor is dropped rather than failing the query
+    @Override
+    public boolean accepts(WineCursor cursor){
+        try {
+            parseKey(cursor.key());
+            return WineOrder.super.accepts(cursor);
+        }catch (NumberFormatException ex){
+            return false;
+        }
+    }
+
+    // Writes a sort key into a cursor
+    public String formatKey(WineListing wine){
+        Comparable<?> value = key(wine);
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(value);
+    }
+
+    @Override
+    public WineCursor cursor(WineListing wine){
+        return new WineCursor(param(), formatKey(wine), wine.getId());
+    }
+
+    // Orders wines as this sort does, including the direction
+    @Override
+    public Comparator<WineListing> comparator(){
+        return (first, second) -> directed(compareKeys(key(first), key(second)), first.getId(), second.getId());
+    }
+
+    @Override
+    public int compare(WineListing wine, WineCursor cursor){
+        return directed(compareKeys(key(wine), parseKey(cursor.key())), wine.getId(), cursor.id());
+    }
+
+    private int directed(int keyComparison, int firstId, int secondId){
+        int comparison = keyComparison != 0 ? keyComparison : Integer.compare(firstId, secondId);
+        return descending ? -comparison : comparison;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Comparable first, Comparable second){
+        return first.compareTo(second);
+    }
+
+    private enum Key {
+        PRICE, NAME, ALCOHOL
+    }
+}
@@ -0,0 +1,7 @@
+package com.wineshop.catalog;
+
+import java.time.Instant;
+
+// Version and last modification time of a wine, read without loading the entity
+public record WineVersion(long version, Instant updatedAt) {
+}
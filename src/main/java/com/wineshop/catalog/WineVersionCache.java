@@ -0,0 +1,66 @@
+package com.wineshop.catalog;
+
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.DictionaryChangedEvent;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Wine versions kept in memory so conditional requests for detail pages are answered without loading the wine.
+// Entries are filled on first request and replaced after every committed change.
+@Component
+public class WineVersionCache {
+
+    private final WineRepository wineRepository;
+    private final PrimaryReads primaryReads;
+    private final Map<Integer, WineVersion> versions = new ConcurrentHashMap<>();
+
+    // Detail pages also show dictionary names, so a dictionary change must alter every validator
+    private volatile long dictionaryStamp = System.currentTimeMillis();
+
+    public WineVersionCache(WineRepository wineRepository, PrimaryReads primaryReads){
+        this.wineRepository = wineRepository;
+        this.primaryReads = primaryReads;
+    }
+
+    // ETag and Last-Modified values for a wine's detail page, or null when the wine does not exist.
+    // A missing entry is read from the primary: a replica's older version would be kept until the wine changes again.
+    public Validators validatorsFor(Integer id){
+        WineVersion version = versions.computeIfAbsent(id, key -> primaryReads.read(() -> wineRepository.findVersionById(key).orElse(null)));
+        if(version == null){
+            return null;
+        }
+
+        long stamp = dictionaryStamp;
+        long lastModified = version.updatedAt() == null ? stamp : Math.max(version.updatedAt().toEpochMilli(), stamp);
+        return new Validators("\"" + id + "-" + version.version() + "-" + Long.toString(stamp, 36) + "\"", lastModified);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWineChanged(WineChangedEvent event){
+        Wine wine = event.wine();
+        if(event.removed()){
+            versions.remove(wine.getId());
+        }else {
+            versions.put(wine.getId(), new WineVersion(wine.getVersion(), wine.getUpdatedAt()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDictionaryChanged(DictionaryChangedEvent event){
+        dictionaryStamp = Math.max(System.currentTimeMillis(), dictionaryStamp + 1);
+    }
+
+    public record Validators(String etag, long lastModified) {
+
+        // Extends the validators with other state rendered on the same page, e.g. the visitor's basket badge
+        public Validators with(String tag, long tagLastModified){
+            return new Validators(etag.substring(0, etag.length() - 1) + "-" + tag + "\"", Math.max(lastModified, tagLastModified));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.wineshop.controller;
+
+import com.wineshop.basket.BasketChangeView;
+import com.wineshop.exception.BasketItemNotFoundException;
+import com.wineshop.exception.BasketNotFoundException;
+import com.wineshop.exception.NotEnoughStockException;
+import com.wineshop.exception.WineNotFoundException;
+import com.wineshop.service.BasketItemService;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Basket changes for scripts: each call answers with the changed line and the new basket count and total as JSON,
+// so the page is patched in place instead of being redirected and rendered again
+@RestController
+@RequestMapping("/api/basket")
+public class BasketApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BasketApiController.class);
+
+    private final BasketItemService basketItemService;
+
+    public BasketApiController(BasketItemService basketItemService){
+        this.basketItemService = basketItemService;
+    }
+
+    // Adds bottles of a wine to the basket, one unless stated otherwise
+    @PostMapping("/add")
+    public BasketChangeView addToBasket(@RequestParam Integer wineId, @RequestParam(defaultValue = "1") int quantity, HttpSession session){
+        return BasketChangeView.of(basketItemService.addOrUpdateBasketItem(BasketSessions.sessionId(session), wineId, quantity));
+    }
+
+    // Removes a wine from the basket; the answer carries quantity 0
+    @PostMapping("/remove")
+    public BasketChangeView removeFromBasket(@RequestParam Integer wineId, HttpSession session){
+        return BasketChangeView.of(basketItemService.removeBasketItem(BasketSessions.sessionId(session), wineId));
+    }
+
+    // Sets the quantity of one wine in the basket
+    @PostMapping("/update")
+    public BasketChangeView updateBasketItemQuantity(@RequestParam Integer wineId, @RequestParam int quantity, HttpSession session){
+        return BasketChangeView.of(basketItemService.updateBasketItemQuantity(BasketSessions.sessionId(session), wineId, quantity));
+    }
+
+    // Answers 409 when the requested bottles are not in stock
+    @ExceptionHandler(NotEnoughStockException.class)
+    public ResponseEntity<Map<String, String>> handleNotEnoughStock(NotEnoughStockException ex){
+        return error(HttpStatus.CONFLICT, ex);
+    }
+
+    // Answers 404 for an unknown wine, basket or basket item
+    @ExceptionHandler({WineNotFoundException.class, BasketNotFoundException.class, BasketItemNotFoundException.class})
+    public ResponseEntity<Map<String, String>> handleNotFound(RuntimeException ex){
+        return error(HttpStatus.NOT_FOUND, ex);
+    }
+
+    // Answers 400 for a quantity below one, rejected by the basket service
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex){
+        return error(HttpStatus.BAD_REQUEST, ex);
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, RuntimeException ex){
+        logger.warn("Basket API request rejected with {}: {}", status.value(), ex.getMessage());
+        return ResponseEntity.status(status).body(Map.of("error", ex.getMessage()));
+    }
+}
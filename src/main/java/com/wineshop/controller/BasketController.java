@@ -1,11 +1,12 @@
 package com.wineshop.controller;
 
+import com.wineshop.basket.BasketChange;
+import com.wineshop.basket.BasketView;
+import com.wineshop.exception.BasketItemNotFoundException;
+import com.wineshop.exception.BasketNotFoundException;
+import com.wineshop.exception.NotEnoughStockException;
 import com.wineshop.exception.WineNotFoundException;
-import com.wineshop.model.BasketItem;
-import com.wineshop.model.Wine;
 import com.wineshop.service.BasketItemService;
-import com.wineshop.service.BasketService;
-import com.wineshop.service.WineService;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,9 +16,11 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/basket")
@@ -27,56 +30,63 @@ public class BasketController {
 
     private final int DEFAULT_QUANTITY = 1;
 
-    private final BasketService basketService;
     private final BasketItemService basketItemService;
-    private final WineService wineService;
 
-    public BasketController(BasketService basketService, BasketItemService basketItemService, WineService wineService){
-        this.basketService = basketService;
+    public BasketController(BasketItemService basketItemService){
         this.basketItemService = basketItemService;
-        this.wineService = wineService;
     }
 
     // Shows basket contents
     @GetMapping
     public String showBasket(HttpSession session, Model model){
-        String sessionId = getSessionId(session);
+        String sessionId = BasketSessions.sessionId(session);
         logger.info("Displaying basket for session: {}", sessionId);
 
-        List<BasketItem> items = basketItemService.getBasketItems(sessionId);
-        BigDecimal totalCost = basketItemService.calculateTotalCost(sessionId);
+        BasketView basket = basketItemService.getBasketView(sessionId);
 
-        model.addAttribute("items", items);
-        model.addAttribute("totalCost", totalCost);
+        model.addAttribute("items", basket.items());
+        model.addAttribute("totalCost", basket.totalCost());
+        model.addAttribute("available", basket.availableByWineId());
 
         return "basket";
     }
 
     // Adds a product to the basket with default quantity
     @PostMapping("/add")
-    public String addToBasket(@RequestParam Integer wineId, HttpSession session, Model model){
-        String sessionId = getSessionId(session);
+    public String addToBasket(@RequestParam Integer wineId, HttpSession session, Model model, RedirectAttributes redirectAttributes){
+        String sessionId = BasketSessions.sessionId(session);
         logger.info("Adding wine {} to basket {}", wineId, sessionId);
 
         try {
-            basketItemService.addOrUpdateBasketItem(sessionId, wineId, DEFAULT_QUANTITY);
-            Wine wine = wineService.findWineByIdOrThrow(wineId);
-            model.addAttribute("wine", wine);
+            // The change carries the wine and the new totals, so the page needs no further reads
+            BasketChange change = basketItemService.addOrUpdateBasketItem(sessionId, wineId, DEFAULT_QUANTITY);
+            model.addAttribute("wine", change.wine());
+            model.addAttribute("basketSummary", change.summary());
             return "wine-details";
         } catch (WineNotFoundException e) {
             logger.warn("Wine with ID {} not found, cannot add to basket.", wineId);
             model.addAttribute("errorMessage", "Wine not found.");
             return "wine-details";
+        } catch (NotEnoughStockException e) {
+            // The basket page shows how many of the wine the session already holds next to the message
+            logger.warn("Cannot add wine {} to basket {}: {}", wineId, sessionId, e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/basket";
         }
     }
 
-    // Removes a product from the basket
+    // Removes a product from the basket. A basket that was purged or never created, or an item already swept with its
+    // expired reservation, counts as removed.
     @PostMapping("/remove")
     public String removeFromBasket(@RequestParam Integer wineId, HttpSession session){
-        String sessionId = getSessionId(session);
+        String sessionId = BasketSessions.sessionId(session);
         logger.info("Removing wine {} from basket {}", wineId, sessionId);
 
-        basketItemService.removeBasketItem(sessionId, wineId);
+        try {
+            basketItemService.removeBasketItem(sessionId, wineId);
+        } catch (BasketNotFoundException | BasketItemNotFoundException e) {
+            logger.info("Wine {} already gone from basket {}: {}", wineId, sessionId, e.getMessage());
+        }
 
         return "redirect:/basket";
     }
@@ -86,37 +96,35 @@ public class BasketController {
     public String updateBasketItemQuantity(
             @RequestParam(required = false) List<Integer> wineIds,
             @RequestParam(required = false) List<Integer> quantities,
-            HttpSession session){
+            HttpSession session, RedirectAttributes redirectAttributes){
 
         if (wineIds == null || quantities == null) {
             logger.warn("Basket update request received with no products.");
             return "redirect:/basket";
         }
 
-        String sessionId = getSessionId(session);
+        String sessionId = BasketSessions.sessionId(session);
 
-        for(int i = 0; i < wineIds.size(); i++){
-            Integer wineId = wineIds.get(i);
-            Integer quantity = quantities.get(i);
-
-            logger.info("Updating wine {} quantity to {} in basket {}", wineIds.get(i), quantities.get(i), sessionId);
-            basketItemService.updateBasketItemQuantity(sessionId, wineId, quantity);
+        Map<Integer, Integer> quantitiesByWineId = new LinkedHashMap<>();
+        for(int i = 0; i < Math.min(wineIds.size(), quantities.size()); i++){
+            quantitiesByWineId.put(wineIds.get(i), quantities.get(i));
         }
 
-        return "redirect:/basket";
-    }
-
-
-    // Retrieves the session ID or generates a new one if it doesn't exist
-    private String getSessionId(HttpSession session) {
-        String sessionId = (String) session.getAttribute("sessionId");
-
-        if(sessionId == null){
-            sessionId = session.getId();
-            basketService.getOrCreateBasket(sessionId);
-            session.setAttribute("sessionId", sessionId);
+        logger.info("Updating quantities {} in basket {}", quantitiesByWineId, sessionId);
+        try {
+            basketItemService.updateBasketItemQuantities(sessionId, quantitiesByWineId);
+        } catch (IllegalArgumentException e) {
+            // Nothing was changed; the basket page shows the quantities as they were
+            logger.warn("Basket update rejected for basket {}: {}", sessionId, e.getMessage());
+        } catch (BasketNotFoundException | BasketItemNotFoundException e) {
+            // The basket was purged or a line swept since the page was rendered; the page shows what is left
+            logger.warn("Basket update for basket {} found it changed: {}", sessionId, e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", "Your basket has changed since you last saw it. Please check it and try again.");
+        } catch (NotEnoughStockException e) {
+            logger.warn("Basket update for basket {} exceeds stock: {}", sessionId, e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
         }
 
-        return sessionId;
+        return "redirect:/basket";
     }
 }
@@ -0,0 +1,25 @@
+package com.wineshop.controller;
+
+import jakarta.servlet.http.HttpSession;
+
+// Session attribute that ties a visitor to their basket
+final class BasketSessions {
+
+    static final String SESSION_ID = "sessionId";
+
+    private BasketSessions(){
+    }
+
+    // Retrieves the session ID or assigns the HTTP session's ID if it doesn't exist
+    static String sessionId(HttpSession session){
+        String sessionId = (String) session.getAttribute(SESSION_ID);
+
+        if(sessionId == null){
+            // No basket row yet: it is created when the first item is added
+            sessionId = session.getId();
+            session.setAttribute(SESSION_ID, sessionId);
+        }
+
+        return sessionId;
+    }
+}
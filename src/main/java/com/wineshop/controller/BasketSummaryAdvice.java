@@ -0,0 +1,31 @@
+package com.wineshop.controller;
+
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.service.BasketItemService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+
+// Adds the basket item count and total shown in the navigation badge to the catalog pages
+@ControllerAdvice(assignableTypes = WineController.class)
+public class BasketSummaryAdvice {
+
+    private final BasketItemService basketItemService;
+
+    public BasketSummaryAdvice(BasketItemService basketItemService){
+        this.basketItemService = basketItemService;
+    }
+
+    // Reads the summary for GET requests of sessions that may have a basket; other requests cost no query
+    @ModelAttribute("basketSummary")
+    public BasketSummary basketSummary(HttpServletRequest request){
+        HttpSession session = request.getSession(false);
+        String sessionId = session == null ? null : (String) session.getAttribute(BasketSessions.SESSION_ID);
+
+        if(sessionId == null || !"GET".equals(request.getMethod())){
+            return BasketSummary.EMPTY;
+        }
+        return basketItemService.getBasketSummary(sessionId);
+    }
+}
@@ -1,16 +1,26 @@
 package com.wineshop.controller;
 
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.catalog.WineVersionCache;
 import com.wineshop.exception.WineNotFoundException;
 import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceData;
+import com.wineshop.reference.ReferenceDataRegistry;
 import com.wineshop.service.WineService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import java.math.BigDecimal;
 import java.util.List;
 
 
@@ -20,9 +30,17 @@ public class WineController {
 
     private static final Logger logger = LoggerFactory.getLogger(WineController.class);
     private final WineService wineService;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
-    public WineController(WineService wineService){
+    public WineController(WineService wineService, ReferenceDataRegistry referenceDataRegistry){
         this.wineService = wineService;
+        this.referenceDataRegistry = referenceDataRegistry;
+    }
+
+    // Dictionaries for the search form, served from memory
+    @ModelAttribute("referenceData")
+    public ReferenceData referenceData(){
+        return referenceDataRegistry.get();
     }
 
     // Displays the home page with empty wine list
@@ -43,10 +61,18 @@ public class WineController {
             @RequestParam(required = false)String flavour,
             @RequestParam(required = false)String type,
             @RequestParam(required = false)String price,
+            @RequestParam(required = false)BigDecimal minPrice,
+            @RequestParam(required = false)BigDecimal maxPrice,
+            @RequestParam(required = false)String q,
+            @RequestParam(required = false)String sort,
+            @RequestParam(required = false)String after,
+            @RequestParam(required = false)String before,
+            @RequestParam(required = false)Integer size,
             Model model){
 
-        if (color != null || flavour != null || type != null || price != null) {
-            logger.info("Filtering wines - Color: {}, Flavour: {}, Type: {}, Price: {}", color, flavour, type, price);
+        if (color != null || flavour != null || type != null || price != null || minPrice != null || maxPrice != null || q != null) {
+            logger.info("Filtering wines - Color: {}, Flavour: {}, Type: {}, Price: {}, Min price: {}, Max price: {}, Query: {}",
+                    color, flavour, type, price, minPrice, maxPrice, q);
         } else {
             logger.info("Filtering request received, but no criteria provided.");
         }
@@ -55,21 +81,43 @@ public class WineController {
         model.addAttribute("flavour", flavour);
         model.addAttribute("type", type);
         model.addAttribute("price", price);
-
-        List<Wine> filteredWines = wineService.filterWines(color, flavour, type, price);
-        model.addAttribute("wines", filteredWines);
+        model.addAttribute("minPrice", minPrice);
+        model.addAttribute("maxPrice", maxPrice);
+        model.addAttribute("q", q);
+
+        // Explicit min/max prices override the price range bucket
+        WineFilter filter = WineFilter.of(color, flavour, type, price, minPrice, maxPrice);
+        WinePageRequest pageRequest = WinePageRequest.of(sort, after, before, size);
+        WinePage page = wineService.findWinePage(filter, q, pageRequest);
+        model.addAttribute("wines", page.wines());
+        model.addAttribute("sort", pageRequest.sort() == null ? null : pageRequest.sort().param());
+        model.addAttribute("size", pageRequest.size());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("previousCursor", page.previousCursor());
+        model.addAttribute("facets", wineService.countFacets(filter, q));
         model.addAttribute("searched", true);
 
-        logger.info("Found {} wines.", filteredWines.size());
+        logger.info("Found {} wines.", page.wines().size());
 
         return "index";
     }
 
-    // Displays details of a wine by ID
+    // Displays details of a wine by ID. Answers 304 Not Modified from the version cache when the client copy is current.
     @GetMapping("/wines/{id}")
-    public String showWineDetails(@PathVariable Integer id, Model model){
+    public String showWineDetails(@PathVariable Integer id, @ModelAttribute("basketSummary") BasketSummary basketSummary,
+                                  WebRequest request, Model model){
         logger.info("Fetching details for wine with ID: {}", id);
 
+        // The page also shows the basket badge, so the validators change with the basket as well as the wine
+        WineVersionCache.Validators validators = wineService.findWineValidators(id);
+        if(validators != null){
+            validators = validators.with(basketSummary.tag(), basketSummary.lastModified());
+        }
+        if(validators != null && request.checkNotModified(validators.etag(), validators.lastModified())){
+            logger.info("Wine with ID {} not modified since last request.", id);
+            return null;
+        }
+
         try {
             Wine wine = wineService.findWineByIdOrThrow(id);
             model.addAttribute("wine", wine);
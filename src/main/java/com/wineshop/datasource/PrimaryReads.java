@@ -0,0 +1,35 @@
+package com.wineshop.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+// Runs queries that refill in-memory caches in their own read-write transaction, so they read the primary even when
+// called from a read-only transaction. A replica lagging behind a committed change would otherwise put the old rows
+// back into a cache the change has just cleared, where they stay until the next change.
+@Component
+public class PrimaryReads {
+
+    private final TransactionOperations transaction;
+
+    @Autowired
+    public PrimaryReads(PlatformTransactionManager transactionManager){
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(false);
+        this.transaction = template;
+    }
+
+    public PrimaryReads(TransactionOperations transaction){
+        this.transaction = transaction;
+    }
+
+    public <T> T read(Supplier<T> query){
+        return transaction.execute(status -> query.get());
+    }
+}
@@ -0,0 +1,11 @@
+package com.wineshop.datasource;
+
+// Selects which replica serves the next read-only transaction
+public enum ReplicaPolicy {
+
+    // Replicas take turns in a fixed order
+    ROUND_ROBIN,
+
+    // The replica with the fewest connections currently handed out by this application
+    LEAST_CONNECTIONS
+}
@@ -0,0 +1,68 @@
+package com.wineshop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replaces the single spring.datasource pool with the primary plus read replicas once replica URLs are configured.
+// Everything that injects a DataSource (JPA, Flyway, JdbcTemplate) gets the lazy routing proxy.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "wineshop.datasource.replicas.urls")
+public class ReplicaRoutingConfiguration {
+
+    // The primary pool, configured from spring.datasource.* as without replicas
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties){
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // One read-only pool per replica URL, sharing the primary's driver
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${wineshop.datasource.replicas.urls}") List<String> urls,
+                                                             @Value("${wineshop.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                                             @Value("${wineshop.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                                             @Value("${wineshop.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                                             @Value("${wineshop.datasource.replicas.connection-timeout:PT2S}") Duration connectionTimeout,
+                                                             @Value("${wineshop.datasource.replicas.policy:round-robin}") ReplicaPolicy policy,
+                                                             @Value("${wineshop.datasource.replicas.retry-interval:PT30S}") Duration retryInterval){
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for(String url : urls){
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setJdbcUrl(url);
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setReadOnly(true);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, policy, retryInterval, Clock.systemUTC(), meterRegistry);
+    }
+
+    // The data source the application uses: defers taking a connection until the first statement, so routing sees
+    // whether the transaction is read-only
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource){
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
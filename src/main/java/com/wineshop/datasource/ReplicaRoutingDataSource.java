@@ -0,0 +1,168 @@
+package com.wineshop.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands out connections for read-only transactions from replicas and every other connection from the primary.
+// It has to sit behind a LazyConnectionDataSourceProxy: the connection is then fetched at the first statement, when the
+// transaction and its read-only flag are already known. A replica that cannot be reached is skipped for the retry
+// interval, and its reads go to the other replicas or, when none is left, to the primary.
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaPolicy policy;
+    private final Duration retryInterval;
+    private final Clock clock;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter fallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, ReplicaPolicy policy,
+                                    Duration retryInterval, Clock clock, MeterRegistry meterRegistry){
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for(int i = 0; i < replicas.size(); i++){
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.policy = policy;
+        this.retryInterval = retryInterval;
+        this.clock = clock;
+
+        this.fallbacks = Counter.builder("wineshop.datasource.replica.fallbacks")
+                .description("Read-only connections taken from the primary because no replica could be reached")
+                .register(meterRegistry);
+    }
+
+    // Connection from a replica inside a read-only transaction, otherwise from the primary
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    // Same routing, passing the credentials on to whichever data source is picked
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            return source.connect(primary);
+        }
+        for(Replica replica : candidates()){
+            try {
+                return replica.borrow(source);
+            }catch (SQLFeatureNotSupportedException ex){
+                // A pool that does not take credentials per call, e.g. Hikari, says nothing about the replica's health
+                throw ex;
+            }catch (SQLException | RuntimeException ex){
+                // A pool that cannot start throws unchecked exceptions, a running one SQLException
+                replica.downUntil = clock.instant().plus(retryInterval);
+                logger.warn("Replica {} unavailable, skipping it for {}: {}", replica.name, retryInterval, ex.getMessage());
+            }
+        }
+        fallbacks.increment();
+        return source.connect(primary);
+    }
+
+    // Replicas not marked down, in the order the policy prefers them
+    private List<Replica> candidates(){
+        Instant now = clock.instant();
+        List<Replica> available = replicas.stream()
+                .filter(replica -> replica.downUntil == null || !now.isBefore(replica.downUntil))
+                .toList();
+        if(available.isEmpty()){
+            return available;
+        }
+        List<Replica> ordered = new ArrayList<>(available.size());
+        if(policy == ReplicaPolicy.LEAST_CONNECTIONS){
+            ordered.addAll(available);
+            ordered.sort(Comparator.comparingInt(replica -> replica.active.get()));
+        }else {
+            int start = Math.floorMod(next.getAndIncrement(), available.size());
+            for(int i = 0; i < available.size(); i++){
+                ordered.add(available.get((start + i) % available.size()));
+            }
+        }
+        return ordered;
+    }
+
+    // Closes replica pools; the primary is closed by its own bean
+    @Override
+    public void close() throws Exception {
+        for(Replica replica : replicas){
+            if(replica.dataSource instanceof AutoCloseable closeable){
+                closeable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+
+        // Connections handed out and not yet closed, for the least-connections policy
+        private final AtomicInteger active = new AtomicInteger();
+
+        private volatile Instant downUntil;
+
+        private Replica(String name, DataSource dataSource){
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        // Takes a connection and counts it as active until it is closed
+        private Connection borrow(ConnectionSource source) throws SQLException {
+            Connection target = source.connect(dataSource);
+            downUntil = null;
+            active.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if(method.getName().equals("equals")){
+                            return proxy == args[0];
+                        }
+                        if(method.getName().equals("hashCode")){
+                            return System.identityHashCode(proxy);
+                        }
+                        if(method.getName().equals("close") && closed.compareAndSet(false, true)){
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        }catch (InvocationTargetException ex){
+                            throw ex.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.wineshop.event;
+
+// Published when a color, flavour, type or grape is saved or removed
+public record DictionaryChangedEvent(Object dictionary) {
+}
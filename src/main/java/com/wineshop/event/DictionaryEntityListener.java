@@ -0,0 +1,23 @@
+package com.wineshop.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+// JPA listener turning dictionary lifecycle callbacks into application events
+public class DictionaryEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DictionaryEntityListener(ApplicationEventPublisher eventPublisher){
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object dictionary){
+        eventPublisher.publishEvent(new DictionaryChangedEvent(dictionary));
+    }
+}
@@ -0,0 +1,15 @@
+package com.wineshop.event;
+
+import com.wineshop.model.Wine;
+
+// Published after a wine has been inserted, updated or removed
+public record WineChangedEvent(Wine wine, boolean removed) {
+
+    public static WineChangedEvent saved(Wine wine){
+        return new WineChangedEvent(wine, false);
+    }
+
+    public static WineChangedEvent removed(Wine wine){
+        return new WineChangedEvent(wine, true);
+    }
+}
@@ -0,0 +1,28 @@
+package com.wineshop.event;
+
+import com.wineshop.model.Wine;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+// JPA listener turning Wine lifecycle callbacks into application events
+public class WineEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public WineEntityListener(ApplicationEventPublisher eventPublisher){
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Wine wine){
+        eventPublisher.publishEvent(WineChangedEvent.saved(wine));
+    }
+
+    @PostRemove
+    public void onRemoved(Wine wine){
+        eventPublisher.publishEvent(WineChangedEvent.removed(wine));
+    }
+}
@@ -1,9 +1,12 @@
 package com.wineshop.model;
 
+import com.wineshop.basket.Money;
+import com.wineshop.basket.MoneyConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,7 +19,8 @@ import java.util.List;
 public class Basket {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "baskets_seq")
+    @SequenceGenerator(name = "baskets_seq", sequenceName = "baskets_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
 
@@ -29,6 +33,38 @@ public class Basket {
     @OneToMany(mappedBy = "basket", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<BasketItem> items = new ArrayList<>();
 
+    // Time of the last change to the basket; idle baskets are purged by AbandonedBasketPurger.
+    // Set on insert and afterwards only by BasketRepository.touchBySessionId.
+    @Column(name = "last_activity_at", nullable = false, updatable = false)
+    private Instant lastActivityAt;
+
+    // Sum of item quantities, maintained with every item change
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    // Sum of item line prices, maintained with every item change
+    @Column(name = "total_cost", nullable = false, precision = 10, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalCost = Money.ZERO;
+
+    // Records activity on a new basket
+    @PrePersist
+    public void touch(){
+        this.lastActivityAt = Instant.now();
+    }
+
+    // Applies the change of one item's quantity and line price to the totals
+    public void adjustTotals(int quantityChange, Money costChange){
+        this.itemCount += quantityChange;
+        this.totalCost = totalCost.plus(costChange);
+    }
+
+    // Replaces the totals with values recomputed from the items
+    public void resetTotals(int itemCount, Money totalCost){
+        this.itemCount = itemCount;
+        this.totalCost = totalCost;
+    }
+
     public void addItem(BasketItem item){
         this.items.add(item);
         item.setBasket(this);
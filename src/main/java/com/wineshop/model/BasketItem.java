@@ -1,11 +1,14 @@
 package com.wineshop.model;
 
+import com.wineshop.basket.Money;
+import com.wineshop.basket.MoneyConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 
 @Entity
@@ -17,8 +20,10 @@ import java.math.BigDecimal;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class BasketItem {
 
+    // Keys come from a pooled sequence 50 at a time, so an insert needs no round trip for its key and can join a JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "basket_items_seq")
+    @SequenceGenerator(name = "basket_items_seq", sequenceName = "basket_items_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
 
@@ -40,14 +45,38 @@ public class BasketItem {
     @Setter
     private Integer quantity = 1;
 
+    // Line price: wine price times quantity
     @Column(nullable = false, precision = 10, scale = 2)
+    @Convert(converter = MoneyConverter.class)
     @NotNull
+    @Getter(AccessLevel.NONE)
     @Setter
-    private BigDecimal price;
+    private Money price;
+
+    // Time after which the stock held by this item is released and the item removed
+    @Column(name = "reserved_until")
+    @Setter
+    private Instant reservedUntil;
 
     public BasketItem(Wine wine, Integer quantity, BigDecimal price){
+        this.wine = wine;
+        this.quantity = quantity;
+        this.price = Money.of(price);
+    }
+
+    public BasketItem(Wine wine, Integer quantity, Money price){
         this.wine = wine;
         this.quantity = quantity;
         this.price = price;
     }
+
+    // Line price in złoty, for views
+    public BigDecimal getPrice(){
+        return price.toBigDecimal();
+    }
+
+    // Line price in grosze, for basket arithmetic
+    public Money getLinePrice(){
+        return price;
+    }
 }
@@ -1,12 +1,18 @@
 package com.wineshop.model;
 
+import com.wineshop.event.DictionaryEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "colors")
 @Table(name= "colors")
+@EntityListeners(DictionaryEntityListener.class)
 @NoArgsConstructor
 @RequiredArgsConstructor
 @Getter
@@ -14,7 +20,8 @@ import lombok.*;
 public class Color {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "colors_seq")
+    @SequenceGenerator(name = "colors_seq", sequenceName = "colors_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
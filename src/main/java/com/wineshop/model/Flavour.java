@@ -1,12 +1,18 @@
 package com.wineshop.model;
 
+import com.wineshop.event.DictionaryEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "flavours")
 @Table(name = "flavours")
+@EntityListeners(DictionaryEntityListener.class)
 @NoArgsConstructor
 @RequiredArgsConstructor
 @Getter
@@ -14,7 +20,8 @@ import lombok.*;
 public class Flavour {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flavours_seq")
+    @SequenceGenerator(name = "flavours_seq", sequenceName = "flavours_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
@@ -1,13 +1,19 @@
 package com.wineshop.model;
 
+import com.wineshop.event.DictionaryEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "types")
 @Table(name = "types")
+@EntityListeners(DictionaryEntityListener.class)
 @NoArgsConstructor
 @RequiredArgsConstructor
 @Getter
@@ -15,7 +21,8 @@ import lombok.*;
 public class Type {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "types_seq")
+    @SequenceGenerator(name = "types_seq", sequenceName = "types_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
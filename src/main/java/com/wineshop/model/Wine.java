@@ -1,22 +1,41 @@
 package com.wineshop.model;
 
+import com.wineshop.event.WineEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 
 @Entity
+// Cached in the second-level cache; read-write so stock and catalog edits never serve a stale wine
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "wines")
 @Table(name = "wines")
+@EntityListeners(WineEntityListener.class)
+@NamedEntityGraph(name = Wine.WITH_DICTIONARIES, attributeNodes = {
+        @NamedAttributeNode("color"),
+        @NamedAttributeNode("flavour"),
+        @NamedAttributeNode("type"),
+        @NamedAttributeNode("grape")
+})
 @NoArgsConstructor
 @Getter
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Wine {
 
+    // Entity graph fetching all dictionary associations in the same query as the wine
+    public static final String WITH_DICTIONARIES = "Wine.withDictionaries";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wines_seq")
+    @SequenceGenerator(name = "wines_seq", sequenceName = "wines_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
@@ -60,6 +79,7 @@ public class Wine {
     @Setter
     private String servingTemperature;
 
+    // Stock level. Reservations are counted in WineStock, so a restock is available at once.
     @NotNull
     @Min(0)
     @Column(nullable = false)
@@ -86,6 +106,15 @@ public class Wine {
     @Setter
     private Grape grape;
 
+    // Incremented on every update; drives optimistic locking and the detail page ETag
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    // Time of the last insert or update; sent as Last-Modified on the detail page
+    @UpdateTimestamp
+    private Instant updatedAt;
+
     public Wine(String name, BigDecimal price, String imagePath, Integer volume, Integer quantity, Color color, Flavour flavour) {
         this.name = name;
         this.price = price;
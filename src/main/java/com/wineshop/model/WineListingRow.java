@@ -0,0 +1,43 @@
+package com.wineshop.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Row of the denormalized wine_listing table: listing columns of one wine with its dictionary names inline.
+// It has no setters: rows are only rewritten by bulk statements from WineListingRefresher when a wine or dictionary changes.
+@Entity
+@Table(name = "wine_listing")
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class WineListingRow {
+
+    @Id
+    @Column(name = "wine_id")
+    @EqualsAndHashCode.Include
+    private int id;
+
+    private String name;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal price;
+
+    private String imagePath;
+
+    @Column(precision = 4, scale = 1)
+    private BigDecimal alcoholContent;
+
+    private int colorId;
+
+    private String colorName;
+
+    private int flavourId;
+
+    private String flavourName;
+
+    private Integer typeId;
+
+    private String typeName;
+}
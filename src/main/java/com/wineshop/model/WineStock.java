@@ -0,0 +1,21 @@
+package com.wineshop.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Stock held by basket reservations for one wine. Kept apart from Wine and out of the second-level cache, so that
+// reservations do not invalidate cached wines. Available stock is the wine's quantity minus the reserved quantity.
+@Entity
+@Table(name = "wine_stock")
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class WineStock {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private int wineId;
+
+    @Column(nullable = false)
+    private int reservedQuantity;
+}
@@ -0,0 +1,69 @@
+package com.wineshop.reference;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Immutable lookup table for one dictionary, indexed by ID and by name
+public final class Dictionary<T> {
+
+    private final List<T> values;
+    private final Map<Integer, T> byId;
+    private final Map<String, T> byName;
+    private final Map<String, Integer> idsByName;
+    private final Map<Integer, String> namesById;
+
+    private Dictionary(List<T> values, ToIntFunction<T> id, Function<T, String> name){
+        this.values = values.stream().sorted(Comparator.comparingInt(id)).toList();
+
+        Map<Integer, T> byId = new HashMap<>();
+        Map<String, T> byName = new HashMap<>();
+        Map<String, Integer> idsByName = new HashMap<>();
+        Map<Integer, String> namesById = new HashMap<>();
+        for(T value : this.values){
+            byId.put(id.applyAsInt(value), value);
+            byName.put(name.apply(value), value);
+            idsByName.put(name.apply(value), id.applyAsInt(value));
+            namesById.put(id.applyAsInt(value), name.apply(value));
+        }
+        this.byId = Collections.unmodifiableMap(byId);
+        this.byName = Collections.unmodifiableMap(byName);
+        this.idsByName = Collections.unmodifiableMap(idsByName);
+        this.namesById = Collections.unmodifiableMap(namesById);
+    }
+
+    public static <T> Dictionary<T> of(List<T> values, ToIntFunction<T> id, Function<T, String> name){
+        return new Dictionary<>(values, id, name);
+    }
+
+    public static <T> Dictionary<T> empty(){
+        return new Dictionary<>(List.of(), value -> 0, value -> null);
+    }
+
+    // All entries ordered by ID
+    public List<T> values(){
+        return values;
+    }
+
+    public T byId(Integer id){
+        return id == null ? null : byId.get(id);
+    }
+
+    public T byName(String name){
+        return name == null ? null : byName.get(name);
+    }
+
+    // ID of the entry with the given name, or null when there is none
+    public Integer idOf(String name){
+        return name == null ? null : idsByName.get(name);
+    }
+
+    // Name of the entry with the given ID, or null when there is none
+    public String nameOf(Integer id){
+        return id == null ? null : namesById.get(id);
+    }
+}
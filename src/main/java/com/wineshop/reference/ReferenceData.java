@@ -0,0 +1,14 @@
+package com.wineshop.reference;
+
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Grape;
+import com.wineshop.model.Type;
+
+// Snapshot of all wine dictionaries. Entries are detached and must be treated as read-only.
+public record ReferenceData(Dictionary<Color> colors, Dictionary<Flavour> flavours, Dictionary<Type> types,
+                            Dictionary<Grape> grapes) {
+
+    public static final ReferenceData EMPTY =
+            new ReferenceData(Dictionary.empty(), Dictionary.empty(), Dictionary.empty(), Dictionary.empty());
+}
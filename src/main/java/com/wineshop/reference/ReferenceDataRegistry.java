@@ -0,0 +1,84 @@
+package com.wineshop.reference;
+
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.DictionaryChangedEvent;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Grape;
+import com.wineshop.model.Type;
+import com.wineshop.repository.ColorRepository;
+import com.wineshop.repository.FlavourRepository;
+import com.wineshop.repository.GrapeRepository;
+import com.wineshop.repository.TypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Holds colors, flavours, types and grapes in memory so lookups by ID or name never reach the database
+@Component
+public class ReferenceDataRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataRegistry.class);
+
+    private final ColorRepository colorRepository;
+    private final FlavourRepository flavourRepository;
+    private final TypeRepository typeRepository;
+    private final GrapeRepository grapeRepository;
+    private final PrimaryReads primaryReads;
+
+    private volatile ReferenceData referenceData;
+
+    public ReferenceDataRegistry(ColorRepository colorRepository, FlavourRepository flavourRepository,
+                                 TypeRepository typeRepository, GrapeRepository grapeRepository, PrimaryReads primaryReads){
+        this.colorRepository = colorRepository;
+        this.flavourRepository = flavourRepository;
+        this.typeRepository = typeRepository;
+        this.grapeRepository = grapeRepository;
+        this.primaryReads = primaryReads;
+    }
+
+    // Returns the current snapshot, reloading it if a dictionary changed since it was taken
+    public ReferenceData get(){
+        ReferenceData current = referenceData;
+        if(current == null){
+            current = load();
+        }
+        return current;
+    }
+
+    // Reloads all dictionaries from the primary and replaces the snapshot
+    public synchronized void refresh(){
+        ReferenceData loaded = primaryReads.read(() -> new ReferenceData(
+                Dictionary.of(colorRepository.findAll(), Color::getId, Color::getName),
+                Dictionary.of(flavourRepository.findAll(), Flavour::getId, Flavour::getName),
+                Dictionary.of(typeRepository.findAll(), Type::getId, Type::getName),
+                Dictionary.of(grapeRepository.findAll(), Grape::getId, Grape::getName)));
+        referenceData = loaded;
+        logger.info("Reference data loaded: {} colors, {} flavours, {} types, {} grapes",
+                loaded.colors().values().size(), loaded.flavours().values().size(),
+                loaded.types().values().size(), loaded.grapes().values().size());
+    }
+
+    // Loads dictionaries once the application has started
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(){
+        refresh();
+    }
+
+    // Drops the snapshot after a dictionary change is committed; the next lookup reloads it
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDictionaryChanged(DictionaryChangedEvent event){
+        referenceData = null;
+        logger.info("Reference data invalidated after change to {}", event.dictionary().getClass().getSimpleName());
+    }
+
+    private synchronized ReferenceData load(){
+        if(referenceData == null){
+            refresh();
+        }
+        return referenceData;
+    }
+}
@@ -3,9 +3,16 @@ package com.wineshop.repository;
 import com.wineshop.model.Basket;
 import com.wineshop.model.BasketItem;
 import com.wineshop.model.Wine;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +21,40 @@ public interface BasketItemRepository extends JpaRepository<BasketItem, Integer>
     // Find a specific item in a basket by wine
     Optional<BasketItem> findByBasketAndWine(Basket basket, Wine wine);
 
+    // Find a specific item in a basket by wine and lock it until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<BasketItem> findWithLockByBasketAndWine(Basket basket, Wine wine);
+
+    // Find IDs of baskets holding items whose reservation expired before the given time, in basket ID order
+    @Query("select distinct i.basket.id from BasketItem i where i.reservedUntil < :now order by i.basket.id")
+    List<Integer> findBasketIdsWithExpiredReservations(@Param("now") Instant now, Pageable pageable);
+
+    // Find the items of the given baskets whose reservation expired before the given time
+    List<BasketItem> findByBasketInAndReservedUntilBefore(Collection<Basket> baskets, Instant now);
+
+    // Find all items of the given baskets
+    List<BasketItem> findByBasketIn(Collection<Basket> baskets);
+
     // Find all items in a specific basket
     List<BasketItem> findByBasket(Basket basket);
 
+    // Find and lock the items for the given wines in a basket, loading each wine and its dictionaries in the same query
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = {"wine", "wine.color", "wine.flavour", "wine.type", "wine.grape"})
+    List<BasketItem> findByBasketAndWineIdIn(Basket basket, Collection<Integer> wineIds);
+
+    // Find all items of a session's basket with their wines and the wines' dictionaries in one query, ordered by wine ID
+    @Query("select i from BasketItem i join fetch i.basket b join fetch i.wine w " +
+            "join fetch w.color join fetch w.flavour left join fetch w.type left join fetch w.grape " +
+            "where b.sessionId = :sessionId order by w.id")
+    List<BasketItem> findAllWithWinesBySessionId(@Param("sessionId") String sessionId);
+
+    // Same items as findAllWithWinesBySessionId, each paired with its wine's available stock, still in one query
+    @Query("select i, w.quantity - coalesce(s.reservedQuantity, 0) from BasketItem i join fetch i.basket b join fetch i.wine w " +
+            "join fetch w.color join fetch w.flavour left join fetch w.type left join fetch w.grape " +
+            "left join WineStock s on s.wineId = w.id where b.sessionId = :sessionId order by w.id")
+    List<Object[]> findAllWithWinesAndStockBySessionId(@Param("sessionId") String sessionId);
+
     // Delete all items in a specific basket
     void deleteByBasket(Basket basket);
 }
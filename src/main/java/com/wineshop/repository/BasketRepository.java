@@ -1,11 +1,59 @@
 package com.wineshop.repository;
 
+import com.wineshop.basket.BasketSummary;
 import com.wineshop.model.Basket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BasketRepository extends JpaRepository<Basket, Integer> {
 
     Optional<Basket> findBySessionId(String sessionId);
+
+    // Read only the stored item count, total and last activity of a session's basket
+    @Query("select new com.wineshop.basket.BasketSummary(b.itemCount, b.totalCost, b.lastActivityAt) " +
+            "from Basket b where b.sessionId = :sessionId")
+    Optional<BasketSummary> findSummaryBySessionId(@Param("sessionId") String sessionId);
+
+    // Record activity on a session's basket; the row stays locked until the end of the transaction. Returns 0 without a basket.
+    @Modifying(flushAutomatically = true)
+    @Query("update Basket b set b.lastActivityAt = :now where b.sessionId = :sessionId")
+    int touchBySessionId(@Param("sessionId") String sessionId, @Param("now") Instant now);
+
+    // Record activity on the given baskets
+    @Modifying(flushAutomatically = true)
+    @Query("update Basket b set b.lastActivityAt = :now where b.id in :ids")
+    int touchAll(@Param("ids") Collection<Integer> ids, @Param("now") Instant now);
+
+    // Find IDs of baskets idle since before the cutoff, in ID order after the given ID, for keyset iteration
+    @Query("select b.id from Basket b where b.lastActivityAt < :cutoff and b.id > :afterId order by b.id")
+    List<Integer> findIdleBasketIds(@Param("cutoff") Instant cutoff, @Param("afterId") int afterId, Pageable pageable);
+
+    // Find basket IDs in ID order after the given ID, for keyset iteration
+    @Query("select b.id from Basket b where b.id > :afterId order by b.id")
+    List<Integer> findIdsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    // Find and lock the given baskets in ID order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Basket b where b.id in :ids order by b.id")
+    List<Basket> findAllForUpdate(@Param("ids") Collection<Integer> ids);
+
+    // Find and lock the baskets of the given sessions in ID order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Basket b where b.sessionId in :sessionIds order by b.id")
+    List<Basket> findAllBySessionIdForUpdate(@Param("sessionIds") Collection<String> sessionIds);
+
+    // Find and lock the given baskets that are still idle since before the cutoff
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Basket b where b.id in :ids and b.lastActivityAt < :cutoff")
+    List<Basket> findIdleForUpdate(@Param("ids") Collection<Integer> ids, @Param("cutoff") Instant cutoff);
 }
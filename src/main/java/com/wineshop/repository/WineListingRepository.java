@@ -0,0 +1,72 @@
+package com.wineshop.repository;
+
+import com.wineshop.catalog.FacetRow;
+import com.wineshop.model.WineListingRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface WineListingRepository extends JpaRepository<WineListingRow, Integer>, WineListingRepositoryCustom {
+
+    // Counts listed wines per combination of dictionary names and price, names included, from the listing table alone
+    @Query("select new com.wineshop.catalog.FacetRow(r.colorName, r.flavourName, r.typeName, r.price, count(r)) " +
+            "from WineListingRow r group by r.colorName, r.flavourName, r.typeName, r.price")
+    List<FacetRow> countFacetRows();
+
+    // Same counts over the given wines only, e.g. the hits of a text search
+    @Query("select new com.wineshop.catalog.FacetRow(r.colorName, r.flavourName, r.typeName, r.price, count(r)) " +
+            "from WineListingRow r where r.id in :ids group by r.colorName, r.flavourName, r.typeName, r.price")
+    List<FacetRow> countFacetRows(@Param("ids") Collection<Integer> ids);
+
+    // Removes the row of a wine before it is written again
+    @Modifying
+    @Query("delete from WineListingRow r where r.id = :wineId")
+    int deleteRow(@Param("wineId") int wineId);
+
+    // Writes the row of a wine from the wine and its dictionaries as committed. Writes nothing if the wine is gone.
+    // HQL rather than native SQL: a native statement would evict every second-level cache region.
+    @Modifying
+    @Query("insert into WineListingRow (id, name, price, imagePath, alcoholContent, " +
+            "colorId, colorName, flavourId, flavourName, typeId, typeName) " +
+            "select w.id, w.name, w.price, w.imagePath, w.alcoholContent, c.id, c.name, f.id, f.name, t.id, t.name " +
+            "from Wine w join w.color c join w.flavour f left join w.type t where w.id = :wineId")
+    int insertRow(@Param("wineId") int wineId);
+
+    // Counts wines whose row is missing or differs from the wine and its dictionaries, e.g. after a write that bypassed JPA.
+    // Rows of removed wines cannot outlive them: the foreign key deletes them.
+    @Query("select count(w) from Wine w join w.color c join w.flavour f left join w.type t " +
+            "left join WineListingRow r on r.id = w.id " +
+            "where r.id is null or r.name <> w.name or r.price <> w.price or r.imagePath <> w.imagePath " +
+            "or coalesce(r.alcoholContent, -1) <> coalesce(w.alcoholContent, -1) " +
+            "or r.colorId <> c.id or r.colorName <> c.name or r.flavourId <> f.id or r.flavourName <> f.name " +
+            "or coalesce(r.typeId, 0) <> coalesce(t.id, 0) or coalesce(r.typeName, '') <> coalesce(t.name, '')")
+    long countStaleRows();
+
+    @Modifying
+    @Query("delete from WineListingRow r")
+    int deleteAllRows();
+
+    // Writes the rows of all wines, as insertRow does for one
+    @Modifying
+    @Query("insert into WineListingRow (id, name, price, imagePath, alcoholContent, " +
+            "colorId, colorName, flavourId, flavourName, typeId, typeName) " +
+            "select w.id, w.name, w.price, w.imagePath, w.alcoholContent, c.id, c.name, f.id, f.name, t.id, t.name " +
+            "from Wine w join w.color c join w.flavour f left join w.type t")
+    int insertAllRows();
+
+    @Modifying
+    @Query("update WineListingRow r set r.colorName = :name where r.colorId = :id")
+    int renameColor(@Param("id") int id, @Param("name") String name);
+
+    @Modifying
+    @Query("update WineListingRow r set r.flavourName = :name where r.flavourId = :id")
+    int renameFlavour(@Param("id") int id, @Param("name") String name);
+
+    @Modifying
+    @Query("update WineListingRow r set r.typeName = :name where r.typeId = :id")
+    int renameType(@Param("id") int id, @Param("name") String name);
+}
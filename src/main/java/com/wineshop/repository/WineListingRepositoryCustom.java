@@ -0,0 +1,14 @@
+package com.wineshop.repository;
+
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WineSort;
+import com.wineshop.model.WineListingRow;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface WineListingRepositoryCustom {
+
+    // Finds at most limit listings matching the specification in sort order (reversed if requested), without joins
+    List<WineListing> findListings(Specification<WineListingRow> specification, WineSort sort, boolean reversed, int limit);
+}
@@ -0,0 +1,45 @@
+package com.wineshop.repository;
+
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WineSort;
+import com.wineshop.model.WineListingRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public class WineListingRepositoryCustomImpl implements WineListingRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<WineListing> findListings(Specification<WineListingRow> specification, WineSort sort, boolean reversed, int limit){
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<WineListing> query = criteriaBuilder.createQuery(WineListing.class);
+        Root<WineListingRow> root = query.from(WineListingRow.class);
+
+        // Dictionary names are columns of the row, so the listing is read from a single table
+        query.select(criteriaBuilder.construct(WineListing.class,
+                root.get("id"), root.get("name"), root.get("price"), root.get("imagePath"), root.get("alcoholContent"),
+                root.get("colorName"), root.get("flavourName"), root.get("typeName")));
+        query.where(specification.toPredicate(root, query, criteriaBuilder));
+
+        Expression<?> key = sort.key(root, criteriaBuilder);
+        Expression<?> id = root.get("id");
+        if(sort.descending() != reversed){
+            query.orderBy(criteriaBuilder.desc(key), criteriaBuilder.desc(id));
+        }else {
+            query.orderBy(criteriaBuilder.asc(key), criteriaBuilder.asc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
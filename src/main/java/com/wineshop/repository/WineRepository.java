@@ -1,10 +1,44 @@
 package com.wineshop.repository;
 
+import com.wineshop.catalog.FacetIdRow;
+import com.wineshop.catalog.WineVersion;
 import com.wineshop.model.Wine;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface WineRepository extends JpaRepository<Wine, Integer>, JpaSpecificationExecutor<Wine> {
+public interface WineRepository extends JpaRepository<Wine, Integer>, JpaSpecificationExecutor<Wine>, WineRepositoryCustom {
+
+    // Loads all wines together with their dictionaries in a single joined query
+    @Override
+    @EntityGraph(Wine.WITH_DICTIONARIES)
+    List<Wine> findAll();
+
+    // Loads filtered wines together with their dictionaries in a single joined query
+    @Override
+    @EntityGraph(Wine.WITH_DICTIONARIES)
+    List<Wine> findAll(Specification<Wine> specification);
+
+    // Counts wines per combination of dictionary IDs and price in one grouped query over the wines table alone
+    @Query("select new com.wineshop.catalog.FacetIdRow(w.color.id, w.flavour.id, w.type.id, w.price, count(w)) " +
+            "from Wine w group by w.color.id, w.flavour.id, w.type.id, w.price")
+    List<FacetIdRow> countFacetRows();
+
+    // Same counts over the given wines only, e.g. the hits of a text search
+    @Query("select new com.wineshop.catalog.FacetIdRow(w.color.id, w.flavour.id, w.type.id, w.price, count(w)) " +
+            "from Wine w where w.id in :ids group by w.color.id, w.flavour.id, w.type.id, w.price")
+    List<FacetIdRow> countFacetRows(@Param("ids") Collection<Integer> ids);
+
+    // Reads only the version columns of a wine, e.g. to answer a conditional request
+    @Query("select new com.wineshop.catalog.WineVersion(w.version, w.updatedAt) from Wine w where w.id = :id")
+    Optional<WineVersion> findVersionById(@Param("id") Integer id);
 }
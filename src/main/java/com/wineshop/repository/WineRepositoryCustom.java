@@ -0,0 +1,14 @@
+package com.wineshop.repository;
+
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WineSort;
+import com.wineshop.model.Wine;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface WineRepositoryCustom {
+
+    // Finds at most limit listings of wines matching the specification in sort order (reversed if requested)
+    List<WineListing> findListings(Specification<Wine> specification, WineSort sort, boolean reversed, int limit);
+}
@@ -0,0 +1,54 @@
+package com.wineshop.repository;
+
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WineSort;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Type;
+import com.wineshop.model.Wine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public class WineRepositoryCustomImpl implements WineRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<WineListing> findListings(Specification<Wine> specification, WineSort sort, boolean reversed, int limit){
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<WineListing> query = criteriaBuilder.createQuery(WineListing.class);
+        Root<Wine> root = query.from(Wine.class);
+        Join<Wine, Color> color = root.join("color");
+        Join<Wine, Flavour> flavour = root.join("flavour");
+        Join<Wine, Type> type = root.join("type", JoinType.LEFT);
+
+        // Constructor expression selects only listing columns; the results are plain objects, not managed entities
+        query.select(criteriaBuilder.construct(WineListing.class,
+                root.get("id"), root.get("name"), root.get("price"), root.get("imagePath"), root.get("alcoholContent"),
+                color.get("name"), flavour.get("name"), type.get("name")));
+        query.where(specification.toPredicate(root, query, criteriaBuilder));
+
+        // ID breaks ties so the order is total and matches the keyset condition
+        Expression<?> key = sort.key(root, criteriaBuilder);
+        Expression<?> id = root.get("id");
+        if(sort.descending() != reversed){
+            query.orderBy(criteriaBuilder.desc(key), criteriaBuilder.desc(id));
+        }else {
+            query.orderBy(criteriaBuilder.asc(key), criteriaBuilder.asc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
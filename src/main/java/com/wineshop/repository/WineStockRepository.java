@@ -0,0 +1,34 @@
+package com.wineshop.repository;
+
+import com.wineshop.model.WineStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface WineStockRepository extends JpaRepository<WineStock, Integer> {
+
+    // Adds to the reserved quantity if the wine's stock covers it. Returns 0 when it does not or the wine has no stock row.
+    @Modifying(flushAutomatically = true)
+    @Query("update WineStock s set s.reservedQuantity = s.reservedQuantity + :quantity " +
+            "where s.wineId = :id and s.reservedQuantity + :quantity <= (select w.quantity from Wine w where w.id = :id)")
+    int reserveStock(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    // First reservation of a wine without a stock row, e.g. one inserted outside the application. Returns 0 when the row
+    // exists or the stock does not cover the quantity.
+    @Modifying(flushAutomatically = true)
+    @Query("insert into WineStock (wineId, reservedQuantity) select w.id, :quantity from Wine w " +
+            "where w.id = :id and w.quantity >= :quantity and not exists (select s from WineStock s where s.wineId = w.id)")
+    int insertReservation(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    // Takes previously reserved stock off the reserved quantity
+    @Modifying(flushAutomatically = true)
+    @Query("update WineStock s set s.reservedQuantity = s.reservedQuantity - :quantity where s.wineId = :id")
+    int releaseStock(@Param("id") Integer id, @Param("quantity") int quantity);
+
+    // Stock not held by any reservation, read from the wine's quantity and its stock row
+    @Query("select w.quantity - coalesce(s.reservedQuantity, 0) from Wine w left join WineStock s on s.wineId = w.id where w.id = :id")
+    Optional<Integer> findAvailableQuantity(@Param("id") Integer id);
+}
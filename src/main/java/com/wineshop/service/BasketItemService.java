@@ -1,169 +1,95 @@
 package com.wineshop.service;
 
-import com.wineshop.exception.BasketItemNotFoundException;
-import com.wineshop.exception.BasketNotFoundException;
-import com.wineshop.exception.NotEnoughStockException;
-import com.wineshop.exception.WineNotFoundException;
-import com.wineshop.model.Basket;
+import com.wineshop.basket.BasketChange;
+import com.wineshop.basket.BasketStore;
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.basket.BasketView;
 import com.wineshop.model.BasketItem;
-import com.wineshop.model.Wine;
-import com.wineshop.repository.BasketItemRepository;
-import com.wineshop.repository.BasketRepository;
-import com.wineshop.repository.WineRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class BasketItemService {
 
     private static final Logger logger = LoggerFactory.getLogger(BasketItemService.class);
 
-    private BasketItemRepository basketItemRepository;
-    private BasketRepository basketRepository;
-    private WineRepository wineRepository;
+    private final BasketStore basketStore;
 
-    public BasketItemService(BasketItemRepository basketItemRepository, BasketRepository basketRepository, WineRepository wineRepository){
-        this.basketItemRepository = basketItemRepository;
-        this.basketRepository = basketRepository;
-        this.wineRepository = wineRepository;
+    public BasketItemService(BasketStore basketStore){
+        this.basketStore = basketStore;
     }
 
-    // Adds a wine to the basket or updates quantity if it already exists
-    @Transactional
-    public void addOrUpdateBasketItem(String sessionId, Integer wineId, int quantity){
+    // Adds a wine to the basket or updates quantity if it already exists, reserving the added stock. Returns the changed
+    // line and the new basket totals.
+    public BasketChange addOrUpdateBasketItem(String sessionId, Integer wineId, int quantity){
         logger.info("Adding or updating basket item. Session ID: {}, Wine ID: {}, Quantity: {}", sessionId, wineId, quantity);
-
-        Basket basket = findBasketBySessionId(sessionId);
-        Wine wine = findWineById(wineId);
-
-        BasketItem basketItem = basketItemRepository.findByBasketAndWine(basket, wine)
-                .orElseGet(() -> new BasketItem(wine, quantity, wine.getPrice()));
-
-        if(basketItem.getId() == null){
-            basketItem.setBasket(basket);
-            logger.info("Created new basket item for wine: {}", wine.getName());
-        }else{
-            basketItem.setQuantity(basketItem.getQuantity() + quantity);
-            logger.info("Updated quantity for basket item. Wine: {}, New Quantity: {}", wine.getName(), basketItem.getQuantity());
-        }
-
-        // Ensure the new quantity does not exceed stock availability
-        if(basketItem.getQuantity() > wine.getQuantity()){
-            logger.warn("Cannot add more than available stock. Wine: {}", wine.getName());
-            throw new NotEnoughStockException("Not enough stock for wine: " + wine.getName());
-        }
-
-        basketItem.setPrice(wine.getPrice().multiply(BigDecimal.valueOf(basketItem.getQuantity())));
-        basketItemRepository.save(basketItem);
-
-        logger.info("Basket item successfully added or updated. Wine: {}", wine.getName());
+        requirePositive(quantity);
+        return basketStore.addOrUpdateItem(sessionId, wineId, quantity);
     }
 
-
-    // Removes an item from the basket
-    @Transactional
-    public void removeBasketItem(String sessionId, Integer wineId){
+    // Removes an item from the basket and releases its reserved stock
+    public BasketChange removeBasketItem(String sessionId, Integer wineId){
         logger.info("Removing basket item. Session ID: {}, Wine ID: {}", sessionId, wineId);
-
-        Basket basket = findBasketBySessionId(sessionId);
-        Wine wine = findWineById(wineId);
-        BasketItem basketItem = findBasketItemByBasketAndWine(basket, wine);
-
-        if (basketItem == null) {
-            logger.warn("Basket item not found for wine: {}", wine.getName());
-            throw new BasketItemNotFoundException("Basket item not found for wine: " + wine.getName());
-        }
-
-        basketItemRepository.delete(basketItem);
-        logger.info("Basket item removed successfully. Wine: {}", wine.getName());
+        return basketStore.removeItem(sessionId, wineId);
     }
 
-
-    //Updates the quantity of an item in the basket
-    @Transactional
-    public void updateBasketItemQuantity(String sessionId, Integer wineId, Integer newQuantity){
+    //Updates the quantity of an item in the basket, reserving or releasing the difference
+    public BasketChange updateBasketItemQuantity(String sessionId, Integer wineId, Integer newQuantity){
         logger.info("Updating basket item quantity. Session ID: {}, Wine ID: {}, New Quantity: {}", sessionId, wineId, newQuantity);
+        requirePositive(newQuantity);
+        return basketStore.updateItemQuantity(sessionId, wineId, newQuantity);
+    }
 
-        Basket basket = findBasketBySessionId(sessionId);
-        Wine wine = findWineById(wineId);
-        BasketItem basketItem = findBasketItemByBasketAndWine(basket, wine);
+    // Updates quantities of several basket items at once; if any line lacks stock or is below 1 none of them changes
+    public void updateBasketItemQuantities(String sessionId, Map<Integer, Integer> quantitiesByWineId){
+        logger.info("Updating {} basket item quantities. Session ID: {}", quantitiesByWineId.size(), sessionId);
+        quantitiesByWineId.values().forEach(BasketItemService::requirePositive);
+        basketStore.updateItemQuantities(sessionId, quantitiesByWineId);
+        logger.info("Basket item quantities updated successfully. Session ID: {}", sessionId);
+    }
 
-        if(newQuantity > wine.getQuantity()){
-            logger.warn("Cannot update basket item: Not enough stock. Wine: {} (Requested: {}, Available: {})",
-                    wine.getName(), newQuantity, wine.getQuantity());
-            throw new NotEnoughStockException("Not enough stock for wine: " + wine.getName());
-        }
+    // Fetches basket items, their wines and the total cost. A missing basket reads as empty.
+    public BasketView getBasketView(String sessionId){
+        logger.info("Fetching basket view for session ID: {}", sessionId);
 
-        basketItem.setQuantity(newQuantity);
-        basketItem.setPrice(wine.getPrice().multiply(BigDecimal.valueOf(newQuantity)));
-        basketItemRepository.save(basketItem);
+        BasketView view = basketStore.getView(sessionId);
 
-        logger.info("Basket item quantity updated successfully. Wine: {}, New Quantity: {}", wine.getName(), newQuantity);
+        logger.info("Retrieved {} basket items with total cost {} for session ID: {}", view.items().size(), view.totalCost(), sessionId);
+        return view;
     }
 
-    // Fetches all items in the basket for the given session ID.
-    @Transactional(readOnly = true)
+    // Fetches all items in the basket for the given session ID. A missing basket reads as empty.
     public List<BasketItem> getBasketItems(String sessionId){
         logger.info("Fetching basket items for session ID: {}", sessionId);
 
-        Basket basket = findBasketBySessionId(sessionId);
-        List<BasketItem> items = basketItemRepository.findByBasket(basket).stream()
-                .sorted(Comparator.comparing(item -> item.getWine().getId()))
-                .toList();
+        List<BasketItem> items = basketStore.getItems(sessionId);
 
         logger.info("Retrieved {} basket items for session ID: {}", items.size(), sessionId);
-
         return items;
     }
 
-    // Calculates the total cost of items in the basket.
-    @Transactional(readOnly = true)
+    // Returns the total cost of items in the basket from its stored summary. A missing basket costs nothing.
     public BigDecimal calculateTotalCost(String sessionId){
-        logger.info("Calculating total cost for session ID: {}", sessionId);
-
-        Basket basket = findBasketBySessionId(sessionId);
-
-        BigDecimal totalCost = basketItemRepository.findByBasket(basket).stream()
-                .map(BasketItem::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal :: add);
-
-        logger.info("Total cost calculated for session ID: {}: {}", sessionId, totalCost);
+        BigDecimal totalCost = getBasketSummary(sessionId).totalCost().toBigDecimal();
+        logger.info("Total cost for session ID: {}: {}", sessionId, totalCost);
         return totalCost;
     }
 
-
-    // Finds a basket by session ID or throws a BasketNotFoundException if not found.
-    private Basket findBasketBySessionId(String sessionId){
-        return basketRepository.findBySessionId(sessionId)
-                .orElseThrow(() -> {
-                    logger.warn("Basket not found for session ID: {}", sessionId);
-                    return new BasketNotFoundException("Basket not found for session ID: " + sessionId);
-                });
-    }
-
-    // Finds a wine by ID or throws a WineNotFoundException if not found.
-    private Wine findWineById(Integer wineId){
-        return wineRepository.findById(wineId)
-                .orElseThrow(() -> {
-                    logger.warn("Wine not found for ID: {}", wineId);
-                    return new WineNotFoundException("Wine not found for ID: " + wineId);
-                });
+    // Reads the item count and total of a session's basket
+    public BasketSummary getBasketSummary(String sessionId){
+        return basketStore.getSummary(sessionId);
     }
 
-    // Finds a basket item by basket and wine or throws a BasketItemNotFoundException if not found.
-    private BasketItem findBasketItemByBasketAndWine (Basket basket, Wine wine){
-        return basketItemRepository.findByBasketAndWine(basket, wine)
-                .orElseThrow(() -> {
-                    logger.warn("Basket item not found for wine: {}", wine.getName());
-                    return new BasketItemNotFoundException("Basket item not found for wine: " + wine.getName());
-                });
+    // Rejects a missing quantity or one below 1. Lowering a line below 1 would release stock the basket never held.
+    private static void requirePositive(Integer quantity){
+        if(quantity == null || quantity < 1){
+            logger.warn("Rejected basket quantity: {}", quantity);
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
     }
-
-
 }
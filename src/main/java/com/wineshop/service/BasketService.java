@@ -5,6 +5,7 @@ import com.wineshop.repository.BasketRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -14,9 +15,11 @@ public class BasketService {
     private static final Logger logger = LoggerFactory.getLogger(BasketService.class);
 
     private final BasketRepository basketRepository;
+    private final StockReservationService stockReservationService;
 
-    public BasketService(BasketRepository basketRepository){
+    public BasketService(BasketRepository basketRepository, StockReservationService stockReservationService){
         this.basketRepository = basketRepository;
+        this.stockReservationService = stockReservationService;
     }
 
     // Retrieves an existing basket or creates a new one for the session
@@ -35,11 +38,13 @@ public class BasketService {
 
     }
 
-    // Deletes the basket associated with the given session ID
+    // Deletes the basket associated with the given session ID and releases the stock its items reserved
+    @Transactional
     public void deleteBasket(String sessionId){
         Optional<Basket> existingBasket = basketRepository.findBySessionId(sessionId);
 
         if(existingBasket.isPresent()){
+            stockReservationService.releaseAll(existingBasket.get().getItems());
             basketRepository.delete(existingBasket.get());
             logger.info("Deleted basket for sessionId: {}", sessionId);
         }else {
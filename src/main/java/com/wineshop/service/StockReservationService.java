@@ -0,0 +1,72 @@
+package com.wineshop.service;
+
+import com.wineshop.exception.NotEnoughStockException;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineStockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final WineStockRepository wineStockRepository;
+    private final Duration reservationTtl;
+
+    public StockReservationService(WineStockRepository wineStockRepository,
+                                   @Value("${wineshop.basket.reservation.ttl:PT30M}") Duration reservationTtl){
+        this.wineStockRepository = wineStockRepository;
+        this.reservationTtl = reservationTtl;
+    }
+
+    // Moves the given quantity of a wine from available stock into a reservation or throws a NotEnoughStockException
+    // naming the stock still free.
+    // Must run in the caller's transaction so the reservation is rolled back with a failed basket change. A wine without
+    // a stock row gets one on its first reservation; two first reservations racing fail one insert, which basket adds retry.
+    public void reserve(Wine wine, int quantity){
+        if(wineStockRepository.reserveStock(wine.getId(), quantity) == 0
+                && wineStockRepository.insertReservation(wine.getId(), quantity) == 0){
+            int available = Math.max(availableQuantity(wine.getId()), 0);
+            logger.warn("Cannot reserve {} of wine: {}. Only {} available.", quantity, wine.getName(), available);
+            throw new NotEnoughStockException("Not enough stock for wine: " + wine.getName() + ". Only " + available + " more available.");
+        }
+        logger.info("Reserved {} of wine: {}", quantity, wine.getName());
+    }
+
+    // Returns the given quantity of a wine to available stock
+    public void release(Wine wine, int quantity){
+        wineStockRepository.releaseStock(wine.getId(), quantity);
+        logger.info("Released {} of wine: {}", quantity, wine.getName());
+    }
+
+    // Returns the stock held by the given basket items with one update per wine, in wine ID order to avoid deadlocks
+    public void releaseAll(Collection<BasketItem> items){
+        Map<Integer, Integer> quantitiesByWineId = new TreeMap<>();
+        for(BasketItem item : items){
+            quantitiesByWineId.merge(item.getWine().getId(), item.getQuantity(), Integer::sum);
+        }
+        quantitiesByWineId.forEach(wineStockRepository::releaseStock);
+        logger.info("Released reservations of {} basket items across {} wines", items.size(), quantitiesByWineId.size());
+    }
+
+    // Stock of a wine not held by any reservation, or 0 for an unknown wine. Below 0 only if the stock level was lowered
+    // under what baskets hold.
+    public int availableQuantity(Integer wineId){
+        return wineStockRepository.findAvailableQuantity(wineId).orElse(0);
+    }
+
+    // Expiry time for a reservation made or extended now
+    public Instant nextExpiry(){
+        return Instant.now().plus(reservationTtl);
+    }
+}
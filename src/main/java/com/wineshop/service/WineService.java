@@ -1,24 +1,70 @@
 package com.wineshop.service;
 
+import com.wineshop.catalog.CatalogEngine;
+import com.wineshop.catalog.CatalogResultCache;
+import com.wineshop.catalog.FacetIdRow;
+import com.wineshop.catalog.FacetRow;
+import com.wineshop.catalog.SearchHit;
+import com.wineshop.catalog.WineCatalogIndex;
+import com.wineshop.catalog.WineCursor;
+import com.wineshop.catalog.WineFacets;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.RelevanceOrder;
+import com.wineshop.catalog.WineOrder;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.catalog.WineSearchIndex;
+import com.wineshop.catalog.WineSort;
+import com.wineshop.catalog.WineVersionCache;
 import com.wineshop.exception.WineNotFoundException;
 import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceData;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.model.WineListingRow;
+import com.wineshop.repository.WineListingRepository;
 import com.wineshop.repository.WineRepository;
+import com.wineshop.specification.WineListingSpecification;
 import com.wineshop.specification.WineSpecification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// The catalog only reads, so every method runs in a read-only transaction and may be served by a replica
 @Service
+@Transactional(readOnly = true)
 public class WineService {
     private final WineRepository wineRepository;
+    private final WineListingRepository wineListingRepository;
+    private final WineCatalogIndex catalogIndex;
+    private final WineSearchIndex searchIndex;
+    private final CatalogEngine catalogEngine;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final CatalogResultCache resultCache;
+    private final WineVersionCache versionCache;
     private static final Logger logger = LoggerFactory.getLogger(WineService.class);
 
-    public WineService(WineRepository wineRepository){
+    public WineService(WineRepository wineRepository, WineListingRepository wineListingRepository, WineCatalogIndex catalogIndex, WineSearchIndex searchIndex,
+                       ReferenceDataRegistry referenceDataRegistry, CatalogResultCache resultCache, WineVersionCache versionCache,
+                       @Value("${wineshop.catalog.engine:sql}") CatalogEngine catalogEngine){
         this.wineRepository = wineRepository;
+        this.wineListingRepository = wineListingRepository;
+        this.catalogIndex = catalogIndex;
+        this.searchIndex = searchIndex;
+        this.catalogEngine = catalogEngine;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.resultCache = resultCache;
+        this.versionCache = versionCache;
     }
 
     // Finds wines matching given filters
@@ -27,16 +73,180 @@ public class WineService {
                 color, flavour, type, priceRange);
 
 
-        BigDecimal[] priceRangeValues = mapPriceRange(priceRange);
+        WineFilter filter = WineFilter.of(color, flavour, type, priceRange, null, null);
+        List<Wine> wines;
 
-        // Build specification and fetch wines
-        Specification<Wine> specification = WineSpecification.filter(color, flavour, type, priceRangeValues[0], priceRangeValues[1]);
-        List<Wine> wines = wineRepository.findAll(specification);
+        if(catalogEngine == CatalogEngine.INDEX){
+            // Serve the filter from the in-memory index without a database round trip
+            wines = catalogIndex.filter(filter);
+        }else {
+            // Build specification and fetch wines. Full wines are not in wine_listing, so the listing engine comes here too.
+            Specification<Wine> specification = specificationFor(filter);
+            wines = resultCache.get(filter, null, () -> wineRepository.findAll(specification),
+                    result -> result.stream().map(Wine::getId).toList());
+        }
 
         logger.info("Found {} wines matching the criteria", wines.size());
         return wines;
     }
 
+    // Finds one page of wines matching given filters and optional free-text query.
+    // Keyset pagination keeps deep pages as cheap as the first one.
+    public WinePage findWinePage(WineFilter filter, String query, WinePageRequest pageRequest){
+        logger.info("Fetching wine page with criteria - {}, Query: {}, Sort: {}, Size: {}",
+                filter, query, pageRequest.sort(), pageRequest.size());
+
+        // A search orders by relevance unless sorted, so it checks its cursors once the hits are ranked
+        WinePage page = query != null && !query.isBlank()
+                ? findSearchPage(filter, query, pageRequest)
+                : findCatalogPage(filter, pageRequest.forOrder(pageRequest.sortOrDefault()));
+
+        logger.info("Found {} wines on the requested page", page.wines().size());
+        return page;
+    }
+
+    // Pages through the catalog in the requested sort order
+    private WinePage findCatalogPage(WineFilter filter, WinePageRequest pageRequest){
+        if(catalogEngine == CatalogEngine.INDEX){
+            return pageInMemory(listingsOf(catalogIndex.filter(filter)), pageRequest.sortOrDefault(), pageRequest);
+        }else if(catalogEngine == CatalogEngine.LISTING){
+            WineSort sort = pageRequest.sortOrDefault();
+            Specification<WineListingRow> specification = listingSpecificationFor(filter)
+                    .and(WineSpecification.beyondCursor(sort, pageRequest.cursor(), pageRequest.backwards()));
+
+            List<WineListing> fetched = resultCache.get(filter, pageRequest,
+                    () -> wineListingRepository.findListings(specification, sort, pageRequest.backwards(), pageRequest.size() + 1),
+                    result -> result.stream().map(WineListing::getId).toList());
+            return WinePage.of(fetched, pageRequest, sort);
+        }else {
+            WineSort sort = pageRequest.sortOrDefault();
+            Specification<Wine> specification = specificationFor(filter)
+                    .and(WineSpecification.beyondCursor(sort, pageRequest.cursor(), pageRequest.backwards()));
+
+            // One extra row tells whether there is another page in the traversal direction.
+            // It is cached with the page so a change to that wine also evicts the entry.
+            List<WineListing> fetched = resultCache.get(filter, pageRequest,
+                    () -> wineRepository.findListings(specification, sort, pageRequest.backwards(), pageRequest.size() + 1),
+                    result -> result.stream().map(WineListing::getId).toList());
+            return WinePage.of(fetched, pageRequest, sort);
+        }
+    }
+
+    // Ranks text search hits that also pass the filter. Ordered by relevance unless a sort was requested.
+    private WinePage findSearchPage(WineFilter filter, String query, WinePageRequest pageRequest){
+        Map<Integer, Double> scores = new HashMap<>();
+        searchIndex.search(query).forEach(hit -> scores.put(hit.wineId(), hit.score()));
+        if(scores.isEmpty()){
+            return new WinePage(List.of(), null, null);
+        }
+
+        List<WineListing> matches;
+        if(catalogEngine == CatalogEngine.INDEX){
+            matches = listingsOf(catalogIndex.filter(filter).stream()
+                    .filter(wine -> scores.containsKey(wine.getId()))
+                    .toList());
+        }else if(catalogEngine == CatalogEngine.LISTING){
+            Specification<WineListingRow> specification = listingSpecificationFor(filter)
+                    .and(WineSpecification.hasIdIn(scores.keySet()));
+            matches = wineListingRepository.findListings(specification, WineSort.DEFAULT, false, scores.size());
+        }else {
+            Specification<Wine> specification = specificationFor(filter)
+                    .and(WineSpecification.hasIdIn(scores.keySet()));
+            matches = wineRepository.findListings(specification, WineSort.DEFAULT, false, scores.size());
+        }
+
+        WineOrder order = pageRequest.sort() != null ? pageRequest.sort() : new RelevanceOrder(scores);
+        return pageInMemory(matches, order, pageRequest.forOrder(order));
+    }
+
+    // Applies the keyset cursor and page size to wines already held in memory
+    private WinePage pageInMemory(List<WineListing> matches, WineOrder order, WinePageRequest pageRequest){
+        WineCursor cursor = pageRequest.cursor();
+        boolean backwards = pageRequest.backwards();
+        Comparator<WineListing> comparator = backwards ? order.comparator().reversed() : order.comparator();
+
+        List<WineListing> fetched = matches.stream()
+                .filter(wine -> cursor == null || (backwards ? order.compare(wine, cursor) < 0 : order.compare(wine, cursor) > 0))
+                .sorted(comparator)
+                .limit(pageRequest.size() + 1)
+                .toList();
+        return WinePage.of(fetched, pageRequest, order);
+    }
+
+    // Resolves dictionary names to IDs in memory so the query filters on foreign keys without joining dictionaries
+    private Specification<Wine> specificationFor(WineFilter filter){
+        ReferenceData referenceData = referenceDataRegistry.get();
+        Integer colorId = referenceData.colors().idOf(filter.color());
+        Integer flavourId = referenceData.flavours().idOf(filter.flavour());
+        Integer typeId = referenceData.types().idOf(filter.type());
+
+        if((filter.color() != null && colorId == null) || (filter.flavour() != null && flavourId == null)
+                || (filter.type() != null && typeId == null)){
+            logger.info("Filter refers to an unknown dictionary entry, nothing can match");
+            return WineSpecification.none();
+        }
+        return WineSpecification.filterByIds(colorId, flavourId, typeId, filter.minPrice(), filter.maxPrice());
+    }
+
+    // The listing table carries dictionary names, so the filter applies as given
+    private static Specification<WineListingRow> listingSpecificationFor(WineFilter filter){
+        return WineListingSpecification.filter(filter.color(), filter.flavour(), filter.type(), filter.minPrice(), filter.maxPrice());
+    }
+
+    private static List<WineListing> listingsOf(List<Wine> wines){
+        return wines.stream().map(WineListing::of).toList();
+    }
+
+    // Counts matching wines for every color, flavour, type and price range value given the current selection.
+    // With a free-text query only the search hits are counted, so the counts match the pages the query returns.
+    public WineFacets countFacets(WineFilter filter, String query){
+        Set<Integer> hits = null;
+        if(query != null && !query.isBlank()){
+            hits = new HashSet<>();
+            for(SearchHit hit : searchIndex.search(query)){
+                hits.add(hit.wineId());
+            }
+        }
+
+        List<FacetRow> rows;
+        if(hits != null && hits.isEmpty()){
+            rows = List.of();
+        }else if(catalogEngine == CatalogEngine.INDEX){
+            Set<Integer> candidates = hits;
+            rows = catalogIndex.filter(new WineFilter(null, null, null, null, null)).stream()
+                    .filter(wine -> candidates == null || candidates.contains(wine.getId()))
+                    .map(wine -> new FacetRow(
+                            wine.getColor() == null ? null : wine.getColor().getName(),
+                            wine.getFlavour() == null ? null : wine.getFlavour().getName(),
+                            wine.getType() == null ? null : wine.getType().getName(),
+                            wine.getPrice(), 1L))
+                    .toList();
+        }else if(catalogEngine == CatalogEngine.LISTING){
+            // Search facets are not cached, like search pages
+            rows = hits != null ? wineListingRepository.countFacetRows(hits)
+                    : resultCache.facetRows(wineListingRepository::countFacetRows);
+        }else {
+            // Rows are cached with dictionary names; a dictionary change drops them along with the rest of the cache
+            ReferenceData referenceData = referenceDataRegistry.get();
+            rows = hits != null ? resolve(wineRepository.countFacetRows(hits), referenceData)
+                    : resultCache.facetRows(() -> resolve(wineRepository.countFacetRows(), referenceData));
+        }
+
+        WineFacets facets = WineFacets.count(rows, filter);
+        logger.info("Counted facets from {} grouped rows", rows.size());
+        return facets;
+    }
+
+    private static List<FacetRow> resolve(List<FacetIdRow> rows, ReferenceData referenceData){
+        return rows.stream().map(row -> row.resolve(referenceData)).toList();
+    }
+
+    // Gets HTTP validators (ETag, Last-Modified) for a wine's detail page without loading the wine.
+    // Returns null when the wine does not exist.
+    public WineVersionCache.Validators findWineValidators(Integer id){
+        return versionCache.validatorsFor(id);
+    }
+
     // Gets a wine by ID or throws an exception if not found
     public Wine findWineByIdOrThrow(Integer id){
         logger.info("Fetching wine by ID: {}", id);
@@ -47,36 +257,4 @@ public class WineService {
                 });
     }
 
-    // Maps price range string to min and max price values
-    private BigDecimal[] mapPriceRange(String priceRange) {
-
-        BigDecimal minPrice = null;
-        BigDecimal maxPrice = null;
-
-        if (priceRange != null && !priceRange.trim().isEmpty()) {
-            switch (priceRange) {
-                case "<20" -> maxPrice = BigDecimal.valueOf(20);
-                case "20-30" -> {
-                    minPrice = BigDecimal.valueOf(20);
-                    maxPrice = BigDecimal.valueOf(30);
-                }
-                case "30-40" -> {
-                    minPrice = BigDecimal.valueOf(30);
-                    maxPrice = BigDecimal.valueOf(40);
-                }
-                case "40-50" -> {
-                    minPrice = BigDecimal.valueOf(40);
-                    maxPrice = BigDecimal.valueOf(50);
-                }
-                case ">50" -> minPrice = BigDecimal.valueOf(50);
-                default -> logger.warn("Unknown price range: {}", priceRange);
-            }
-        }
-
-        logger.info("Mapped priceRange '{}' to minPrice={}, maxPrice={}", priceRange, minPrice, maxPrice);
-        return new BigDecimal[]{minPrice, maxPrice};
-    }
-
-
-
 }
@@ -0,0 +1,25 @@
+package com.wineshop.specification;
+
+import com.wineshop.model.WineListingRow;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+// Filters over the wine_listing table. Dictionary names are columns there, so no lookup or join is needed.
+public class WineListingSpecification {
+
+    // Filters rows by an inline name column. Returns all rows if no name is specified.
+    private static Specification<WineListingRow> hasName(String attribute, String name) {
+        return (root, query, criteriaBuilder) -> name == null
+                ? criteriaBuilder.conjunction()
+                : criteriaBuilder.equal(root.get(attribute), name);
+    }
+
+    // Combines all filters: color, flavour and type names and the price range.
+    public static Specification<WineListingRow> filter(String color, String flavour, String type, BigDecimal minPrice, BigDecimal maxPrice){
+        return Specification.where(hasName("colorName", color))
+                .and(hasName("flavourName", flavour))
+                .and(hasName("typeName", type))
+                .and(WineSpecification.hasPriceBetween(minPrice, maxPrice));
+    }
+}
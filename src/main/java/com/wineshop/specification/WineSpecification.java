@@ -1,9 +1,15 @@
 package com.wineshop.specification;
 
+import com.wineshop.catalog.WineCursor;
+import com.wineshop.catalog.WineSort;
 import com.wineshop.model.Wine;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 
 public class WineSpecification {
 
@@ -37,8 +43,29 @@ public class WineSpecification {
         };
     }
 
+    // Filters wines by color ID using the foreign key, without joining colors. Returns all wines if no ID is specified.
+    public static Specification<Wine> hasColorId(Integer colorId) {
+        return (root, query, criteriaBuilder) -> colorId == null
+                ? criteriaBuilder.conjunction()
+                : criteriaBuilder.equal(root.get("color").get("id"), colorId);
+    }
+
+    // Filters wines by flavour ID using the foreign key, without joining flavours. Returns all wines if no ID is specified.
+    public static Specification<Wine> hasFlavourId(Integer flavourId) {
+        return (root, query, criteriaBuilder) -> flavourId == null
+                ? criteriaBuilder.conjunction()
+                : criteriaBuilder.equal(root.get("flavour").get("id"), flavourId);
+    }
+
+    // Filters wines by type ID using the foreign key, without joining types. Returns all wines if no ID is specified.
+    public static Specification<Wine> hasTypeId(Integer typeId) {
+        return (root, query, criteriaBuilder) -> typeId == null
+                ? criteriaBuilder.conjunction()
+                : criteriaBuilder.equal(root.get("type").get("id"), typeId);
+    }
+
     // Filters wines by price range. Handles cases where min and/or max price is null.
-    public static Specification<Wine> hasPriceBetween(BigDecimal minPrice, BigDecimal maxPrice){
+    public static <T> Specification<T> hasPriceBetween(BigDecimal minPrice, BigDecimal maxPrice){
         return (root, query, criteriaBuilder) -> {
             if(minPrice == null && maxPrice == null){
                 return criteriaBuilder.conjunction();
@@ -52,6 +79,31 @@ public class WineSpecification {
         };
     }
 
+    // Restricts wines to the given IDs, e.g. the hits of a text search
+    public static <T> Specification<T> hasIdIn(Collection<Integer> ids){
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    // Keyset condition: wines strictly after the cursor in the given sort order, or before it when paging backwards.
+    // Returns all wines if no cursor is specified.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Specification<T> beyondCursor(WineSort sort, WineCursor cursor, boolean backwards){
+        return (root, query, criteriaBuilder) -> {
+            if(cursor == null){
+                return criteriaBuilder.conjunction();
+            }
+
+            Expression key = sort.key(root, criteriaBuilder);
+            Comparable value = sort.parseKey(cursor.key());
+            Path<Integer> id = root.get("id");
+            boolean greater = backwards == sort.descending();
+
+            Predicate beyondKey = greater ? criteriaBuilder.greaterThan(key, value) : criteriaBuilder.lessThan(key, value);
+            Predicate beyondId = greater ? criteriaBuilder.greaterThan(id, cursor.id()) : criteriaBuilder.lessThan(id, cursor.id());
+            return criteriaBuilder.or(beyondKey, criteriaBuilder.and(criteriaBuilder.equal(key, value), beyondId));
+        };
+    }
+
     // Combines all filters: color, flavour, type, and price range.
     public static Specification<Wine> filter(String color, String flavour, String type, BigDecimal minPrice, BigDecimal maxPrice){
         return Specification.where(hasColor(color))
@@ -60,4 +112,17 @@ public class WineSpecification {
                 .and(hasPriceBetween(minPrice, maxPrice));
     }
 
+    // Combines all filters using dictionary IDs resolved beforehand, e.g. from the reference data registry.
+    public static Specification<Wine> filterByIds(Integer colorId, Integer flavourId, Integer typeId, BigDecimal minPrice, BigDecimal maxPrice){
+        return Specification.where(hasColorId(colorId))
+                .and(hasFlavourId(flavourId))
+                .and(hasTypeId(typeId))
+                .and(hasPriceBetween(minPrice, maxPrice));
+    }
+
+    // Matches no wines, e.g. when a filter names a dictionary entry that does not exist.
+    public static <T> Specification<T> none(){
+        return (root, query, criteriaBuilder) -> criteriaBuilder.disjunction();
+    }
+
 }
@@ -0,0 +1,18 @@
+-- Reserved stock moves out of the wines row. Available stock is derived as wines.quantity - reserved_quantity, so
+-- every restock, through the application or plain SQL, is available at once, and reservations never update the
+-- cached wines row.
+
+create table wine_stock (
+    wine_id integer not null,
+    reserved_quantity integer default 0 not null,
+    primary key (wine_id),
+    constraint fk_wine_stock_wine foreign key (wine_id) references wines on delete cascade,
+    -- Equivalent to available <= quantity
+    constraint ck_wine_stock_reserved check (reserved_quantity >= 0)
+);
+
+-- What baskets held until now. Rows where available stock exceeded the stock level hold nothing.
+insert into wine_stock (wine_id, reserved_quantity)
+select id, greatest(quantity - available_quantity, 0) from wines;
+
+alter table wines drop column available_quantity;
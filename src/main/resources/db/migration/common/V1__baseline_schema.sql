@@ -0,0 +1,66 @@
+-- Schema as it stood before migrations were added. Databases created before then are baselined at this version
+-- (spring.flyway.baseline-on-migrate) and continue from V2.
+
+create table colors (
+    id integer generated by default as identity,
+    name varchar(50) not null,
+    primary key (id)
+);
+
+create table flavours (
+    id integer generated by default as identity,
+    name varchar(50) not null,
+    primary key (id)
+);
+
+create table types (
+    id integer generated by default as identity,
+    name varchar(50) not null,
+    primary key (id)
+);
+
+create table grape_varieties (
+    id integer generated by default as identity,
+    name varchar(100) not null,
+    primary key (id)
+);
+
+create table wines (
+    id integer generated by default as identity,
+    name varchar(255) not null,
+    price numeric(10,2) not null,
+    image_path varchar(255) not null,
+    description varchar(255),
+    pairing varchar(255),
+    alcohol_content numeric(4,1),
+    volume integer not null check (volume >= 187),
+    serving_temperature varchar(50),
+    quantity integer not null check (quantity >= 0),
+    color_id integer not null,
+    flavour_id integer not null,
+    type_id integer,
+    grape_variety_id integer,
+    primary key (id),
+    constraint fk_wines_color foreign key (color_id) references colors,
+    constraint fk_wines_flavour foreign key (flavour_id) references flavours,
+    constraint fk_wines_type foreign key (type_id) references types,
+    constraint fk_wines_grape_variety foreign key (grape_variety_id) references grape_varieties
+);
+
+create table baskets (
+    id integer generated by default as identity,
+    session_id varchar(255) not null unique,
+    primary key (id)
+);
+
+create table basket_items (
+    id integer generated by default as identity,
+    basket_id integer not null,
+    wine_id integer not null,
+    quantity integer not null,
+    price numeric(10,2) not null,
+    primary key (id),
+    unique (basket_id, wine_id),
+    constraint fk_basket_items_basket foreign key (basket_id) references baskets on delete cascade,
+    constraint fk_basket_items_wine foreign key (wine_id) references wines
+);
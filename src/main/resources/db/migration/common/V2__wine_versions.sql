@@ -0,0 +1,3 @@
+-- Optimistic lock version and last change time, behind the detail page ETag and Last-Modified
+alter table wines add column version bigint default 0 not null;
+alter table wines add column updated_at timestamp(6) with time zone;
@@ -0,0 +1,7 @@
+-- Stock not held by any basket; existing baskets hold no reservations, so it starts at the stock level
+alter table wines add column available_quantity integer check (available_quantity >= 0);
+update wines set available_quantity = quantity;
+alter table wines alter column available_quantity set not null;
+
+-- Until when an item holds its stock; existing items hold none
+alter table basket_items add column reserved_until timestamp(6) with time zone;
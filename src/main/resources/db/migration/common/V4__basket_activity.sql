@@ -0,0 +1,2 @@
+-- Last basket activity, behind the purge of abandoned baskets; existing baskets count as active when migrated
+alter table baskets add column last_activity_at timestamp(6) with time zone default current_timestamp not null;
@@ -0,0 +1,8 @@
+-- Stored item count and total, computed once from the items
+alter table baskets add column item_count integer;
+alter table baskets add column total_cost numeric(10,2);
+update baskets set
+    item_count = (select coalesce(sum(i.quantity), 0) from basket_items i where i.basket_id = baskets.id),
+    total_cost = (select coalesce(sum(i.price), 0) from basket_items i where i.basket_id = baskets.id);
+alter table baskets alter column item_count set not null;
+alter table baskets alter column total_cost set not null;
@@ -0,0 +1,8 @@
+-- Entity keys come from these sequences, 50 at a time (pooled-lo); the increment must match allocationSize
+create sequence if not exists colors_seq start with 1 increment by 50;
+create sequence if not exists flavours_seq start with 1 increment by 50;
+create sequence if not exists types_seq start with 1 increment by 50;
+create sequence if not exists grape_varieties_seq start with 1 increment by 50;
+create sequence if not exists wines_seq start with 1 increment by 50;
+create sequence if not exists baskets_seq start with 1 increment by 50;
+create sequence if not exists basket_items_seq start with 1 increment by 50;
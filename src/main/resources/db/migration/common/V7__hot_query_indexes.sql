@@ -0,0 +1,11 @@
+-- Dictionary lookups by name
+create index if not exists idx_colors_name on colors (name);
+create index if not exists idx_flavours_name on flavours (name);
+create index if not exists idx_types_name on types (name);
+
+-- Catalog filters on any leading combination of color, flavour and type
+create index if not exists idx_wines_color_flavour_type on wines (color_id, flavour_id, type_id);
+
+-- basket_items.basket_id needs no index of its own: it leads the unique (basket_id, wine_id) index.
+-- wine_id is indexed for the joins from wines and for deleting wines.
+create index if not exists idx_basket_items_wine_id on basket_items (wine_id);
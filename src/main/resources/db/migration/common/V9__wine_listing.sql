@@ -0,0 +1,36 @@
+-- Catalog listing with dictionary names copied inline, so listing pages, filters and facet counts read one table
+-- without joins. The application rewrites the rows of a wine or dictionary entry after each committed change
+-- (WineListingRefresher); rows of removed wines go with them.
+
+create table wine_listing (
+    wine_id integer not null,
+    name varchar(255) not null,
+    price numeric(10,2) not null,
+    image_path varchar(255) not null,
+    alcohol_content numeric(4,1),
+    color_id integer not null,
+    color_name varchar(50) not null,
+    flavour_id integer not null,
+    flavour_name varchar(50) not null,
+    type_id integer,
+    type_name varchar(50),
+    primary key (wine_id),
+    constraint fk_wine_listing_wine foreign key (wine_id) references wines on delete cascade
+);
+
+insert into wine_listing (wine_id, name, price, image_path, alcohol_content,
+                          color_id, color_name, flavour_id, flavour_name, type_id, type_name)
+select w.id, w.name, w.price, w.image_path, w.alcohol_content, c.id, c.name, f.id, f.name, t.id, t.name
+from wines w
+join colors c on c.id = w.color_id
+join flavours f on f.id = w.flavour_id
+left join types t on t.id = w.type_id;
+
+-- Filter columns, and the default page order (price, then ID as the keyset tie-breaker)
+create index idx_wine_listing_filters on wine_listing (color_name, flavour_name, type_name, price);
+create index idx_wine_listing_price on wine_listing (price, wine_id);
+
+-- Dictionary renames rewrite the rows that carry the old name
+create index idx_wine_listing_color_id on wine_listing (color_id);
+create index idx_wine_listing_flavour_id on wine_listing (flavour_id);
+create index idx_wine_listing_type_id on wine_listing (type_id);
@@ -0,0 +1,5 @@
+-- H2 has no INCLUDE columns, so the listing index keeps only the keyset (price, id);
+-- it also serves price ranges in place of the single-column price index
+create index idx_wines_listing on wines (price, id);
+
+drop index if exists idx_wines_price;
@@ -0,0 +1,17 @@
+-- Moves each sequence past the keys already handed out by the identity columns, which are then dropped
+-- so nothing but the sequences assigns keys
+select setval('colors_seq', (select coalesce(max(id), 0) + 1 from colors), false);
+select setval('flavours_seq', (select coalesce(max(id), 0) + 1 from flavours), false);
+select setval('types_seq', (select coalesce(max(id), 0) + 1 from types), false);
+select setval('grape_varieties_seq', (select coalesce(max(id), 0) + 1 from grape_varieties), false);
+select setval('wines_seq', (select coalesce(max(id), 0) + 1 from wines), false);
+select setval('baskets_seq', (select coalesce(max(id), 0) + 1 from baskets), false);
+select setval('basket_items_seq', (select coalesce(max(id), 0) + 1 from basket_items), false);
+
+alter table colors alter column id drop identity if exists;
+alter table flavours alter column id drop identity if exists;
+alter table types alter column id drop identity if exists;
+alter table grape_varieties alter column id drop identity if exists;
+alter table wines alter column id drop identity if exists;
+alter table baskets alter column id drop identity if exists;
+alter table basket_items alter column id drop identity if exists;
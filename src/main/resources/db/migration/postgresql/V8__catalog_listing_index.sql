@@ -0,0 +1,7 @@
+-- Catalog listing in the default price order: the key walks the keyset (price, id) and the included columns carry
+-- the filters and the card, so a page is read from the index alone.
+-- It also serves price ranges, which makes the single-column price index created by Hibernate redundant
+create index idx_wines_listing on wines (price, id)
+    include (name, image_path, alcohol_content, color_id, flavour_id, type_id);
+
+drop index if exists idx_wines_price;
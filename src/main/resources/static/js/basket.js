@@ -0,0 +1,46 @@
+// Sends basket forms to the JSON basket API and patches the changed row and the total in place.
+// Without JavaScript the forms post to the regular endpoints and the page is rendered again.
+document.querySelectorAll("form[data-api]").forEach((form) => {
+  form.addEventListener("submit", async (event) => {
+    event.preventDefault();
+
+    const row = form.closest("tr");
+    const body = new URLSearchParams({ wineId: row.dataset.wineId });
+    const quantityInput = form.querySelector("input[name=quantities]");
+    if (quantityInput) {
+      body.set("quantity", quantityInput.value);
+    }
+
+    const response = await fetch(form.dataset.api, { method: "POST", body });
+    const change = await readJson(response);
+    if (!response.ok || change === null) {
+      alert(change?.error ?? "The basket could not be updated. Please reload the page and try again.");
+      return;
+    }
+
+    // An emptied basket shows a different page
+    if (change.itemCount === 0) {
+      window.location.reload();
+      return;
+    }
+
+    if (change.quantity === 0) {
+      row.remove();
+    } else {
+      row.querySelector(".line-price").textContent = change.linePrice.toFixed(2) + " zł";
+    }
+    document.getElementById("total-cost").textContent = change.totalCost.toFixed(2) + " zł";
+  });
+});
+
+// Body of a JSON response, or null for anything else, e.g. an HTML error page from a proxy or the container
+async function readJson(response) {
+  if (!(response.headers.get("Content-Type") ?? "").includes("application/json")) {
+    return null;
+  }
+  try {
+    return await response.json();
+  } catch {
+    return null;
+  }
+}
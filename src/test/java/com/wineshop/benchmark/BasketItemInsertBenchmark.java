@@ -0,0 +1,106 @@
+package com.wineshop.benchmark;
+
+import com.wineshop.WineShopApplication;
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares inserting basket items one statement at a time, as IDENTITY keys forced, against JDBC batches of 50
+// filled from the pooled sequences.
+// Run with: mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+//     "-Dexec.args=-cp %classpath com.wineshop.benchmark.BasketItemInsertBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasketItemInsertBenchmark {
+
+    private static final int WINES = 100;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    @Param({"1000", "10000"})
+    private int items;
+
+    private ConfigurableApplicationContext context;
+    private TransactionOperations transactionOperations;
+    private BasketRepository basketRepository;
+    private BasketItemRepository basketItemRepository;
+    private List<Wine> wines;
+    private int run;
+
+    @Setup
+    public void setUp(){
+        context = new SpringApplicationBuilder(WineShopApplication.class)
+                .profiles("test")
+                .run("--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--spring.datasource.url=jdbc:h2:mem:basket-insert-" + batchSize + "-" + items,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--server.port=0",
+                        "--logging.level.root=WARN");
+
+        transactionOperations = context.getBean(TransactionOperations.class);
+        basketRepository = context.getBean(BasketRepository.class);
+        basketItemRepository = context.getBean(BasketItemRepository.class);
+
+        Color red = context.getBean(ColorRepository.class).save(new Color("Red"));
+        Flavour dry = context.getBean(FlavourRepository.class).save(new Flavour("Dry"));
+        WineRepository wineRepository = context.getBean(WineRepository.class);
+        wines = new ArrayList<>();
+        for(int i = 0; i < WINES; i++){
+            wines.add(wineRepository.save(new Wine("Wine " + i, BigDecimal.valueOf(20 + i), "", 750, 1000, red, dry)));
+        }
+    }
+
+    // Starts every insert from empty tables
+    @TearDown(Level.Invocation)
+    public void clearBaskets(){
+        basketItemRepository.deleteAllInBatch();
+        basketRepository.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    // Baskets of 100 items each, saved in one transaction until the requested number of items is written
+    @Benchmark
+    public void insertItems(){
+        int round = run++;
+        transactionOperations.executeWithoutResult(status -> {
+            List<Basket> baskets = new ArrayList<>();
+            for(int i = 0; i < items / WINES; i++){
+                Basket basket = new Basket("insert-" + round + "-" + i);
+                for(Wine wine : wines){
+                    basket.addItem(new BasketItem(wine, 1, wine.getPrice()));
+                }
+                baskets.add(basket);
+            }
+            basketRepository.saveAll(baskets);
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BasketItemInsertBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package com.wineshop.benchmark;
+
+import com.wineshop.basket.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compares pricing and totalling a basket with BigDecimal against Money in grosze.
+// Run with: mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+//     "-Dexec.args=-cp %classpath com.wineshop.benchmark.BasketTotalBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BasketTotalBenchmark {
+
+    @Param({"5", "50"})
+    private int items;
+
+    private BigDecimal[] unitPrices;
+    private Money[] unitMoney;
+    private int[] quantities;
+
+    @Setup
+    public void setUp(){
+        Random random = new Random(42);
+        unitPrices = new BigDecimal[items];
+        unitMoney = new Money[items];
+        quantities = new int[items];
+        for(int i = 0; i < items; i++){
+            unitPrices[i] = BigDecimal.valueOf(1000 + random.nextInt(20000), 2);
+            unitMoney[i] = Money.of(unitPrices[i]);
+            quantities[i] = 1 + random.nextInt(6);
+        }
+    }
+
+    // Line prices with multiply and a total with add, as BasketItemService did before
+    @Benchmark
+    public BigDecimal bigDecimal(){
+        BigDecimal total = BigDecimal.ZERO;
+        for(int i = 0; i < items; i++){
+            total = total.add(unitPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    // The same arithmetic on longs, converted to BigDecimal once for the view
+    @Benchmark
+    public BigDecimal money(){
+        Money total = Money.ZERO;
+        for(int i = 0; i < items; i++){
+            total = total.plus(unitMoney[i].times(quantities[i]));
+        }
+        return total.toBigDecimal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BasketTotalBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.wineshop.benchmark;
+
+import com.wineshop.WineShopApplication;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Grape;
+import com.wineshop.model.Type;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.*;
+import com.wineshop.service.WineService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Compares the wine details page, and the wine lookup behind it, with and without the Hibernate second-level cache.
+// Run with: mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+//     "-Dexec.args=-cp %classpath com.wineshop.benchmark.WineDetailBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WineDetailBenchmark {
+
+    private static final int WINES = 50;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private WineService wineService;
+    private int[] wineIds;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        context = new SpringApplicationBuilder(WineShopApplication.class)
+                .profiles("test")
+                .run("--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+                        "--spring.datasource.url=jdbc:h2:mem:wine-detail-" + cache,
+                        "--spring.jpa.show-sql=false",
+                        "--server.port=0",
+                        "--logging.level.root=WARN");
+
+        Color red = context.getBean(ColorRepository.class).save(new Color("Red"));
+        Flavour dry = context.getBean(FlavourRepository.class).save(new Flavour("Dry"));
+        Type still = context.getBean(TypeRepository.class).save(new Type("Still"));
+        Grape merlot = context.getBean(GrapeRepository.class).save(new Grape("Merlot"));
+        WineRepository wineRepository = context.getBean(WineRepository.class);
+        wineIds = new int[WINES];
+        for(int i = 0; i < WINES; i++){
+            wineIds[i] = wineRepository.save(new Wine("Wine " + i, BigDecimal.valueOf(20 + i), "", "", "", BigDecimal.valueOf(12),
+                    750, "", 100, red, dry, still, merlot)).getId();
+        }
+
+        wineService = context.getBean(WineService.class);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    // One request for the details page of the next wine, as a shopper browsing the catalog would send
+    @Benchmark
+    public MvcResult wineDetails() throws Exception {
+        int wineId = wineIds[next++ % WINES];
+        return mockMvc.perform(get("/wines/{id}", wineId)).andReturn();
+    }
+
+    // Only the lookup behind the page, a wine with its colour, flavour, type and grape, without rendering
+    @Benchmark
+    public Wine findWine(){
+        return wineService.findWineByIdOrThrow(wineIds[next++ % WINES]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WineDetailBenchmark.class.getSimpleName()).build()).run();
+    }
+}
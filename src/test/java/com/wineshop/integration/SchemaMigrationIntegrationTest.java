@@ -0,0 +1,38 @@
+package com.wineshop.integration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SchemaMigrationIntegrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Test that every migration for the database in use has been applied
+    @Test
+    void testShouldApplyAllMigrations(){
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("10");
+    }
+
+    // Test that the indexes behind dictionary lookups, catalog filters and listing pages exist
+    @Test
+    void testShouldCreateHotQueryIndexes(){
+        assertThat(jdbcTemplate.queryForList(
+                "select lower(index_name) from information_schema.indexes where table_schema = 'PUBLIC'", String.class))
+                .contains("idx_colors_name", "idx_flavours_name", "idx_types_name", "idx_wines_color_flavour_type",
+                        "idx_wines_listing", "idx_basket_items_wine_id", "idx_wine_listing_filters", "idx_wine_listing_price")
+                .doesNotContain("idx_wines_price");
+    }
+}
@@ -0,0 +1,108 @@
+package com.wineshop.integration.controller;
+
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+public class BasketApiControllerIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WineRepository wineRepository;
+
+    @Autowired
+    private BasketItemRepository basketItemRepository;
+
+    @Autowired
+    private BasketRepository basketRepository;
+
+    private Wine wine;
+
+    private Wine anotherWine;
+
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        wine = wineRepository.findAll().get(0);
+        anotherWine = wineRepository.findAll().get(1);
+        session = new MockHttpSession();
+    }
+
+    // Test that adding answers with the changed line and the basket count and total as JSON
+    @Test
+    public void testShouldAnswerAddWithLineAndTotals() throws Exception {
+        mockMvc.perform(post("/api/basket/add").param("wineId", String.valueOf(anotherWine.getId())).session(session))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/basket/add").param("wineId", String.valueOf(wine.getId())).param("quantity", "2").session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.wineId").value(wine.getId()))
+                .andExpect(jsonPath("$.quantity").value(2))
+                .andExpect(jsonPath("$.linePrice").value(wine.getPrice().multiply(BigDecimal.valueOf(2)).doubleValue()))
+                .andExpect(jsonPath("$.itemCount").value(3))
+                .andExpect(jsonPath("$.totalCost").value(wine.getPrice().multiply(BigDecimal.valueOf(2)).add(anotherWine.getPrice()).doubleValue()));
+    }
+
+    // Test that updating and removing answer with the new line, quantity 0 once removed
+    @Test
+    public void testShouldAnswerUpdateAndRemove() throws Exception {
+        mockMvc.perform(post("/api/basket/add").param("wineId", String.valueOf(wine.getId())).session(session));
+
+        mockMvc.perform(post("/api/basket/update").param("wineId", String.valueOf(wine.getId())).param("quantity", "4").session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(4))
+                .andExpect(jsonPath("$.itemCount").value(4));
+
+        mockMvc.perform(post("/api/basket/remove").param("wineId", String.valueOf(wine.getId())).session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(0))
+                .andExpect(jsonPath("$.linePrice").value(0))
+                .andExpect(jsonPath("$.itemCount").value(0));
+    }
+
+    // Test that a quantity beyond stock is rejected with 409, an unknown line with 404 and a zero quantity with 400
+    @Test
+    public void testShouldRejectInvalidChanges() throws Exception {
+        mockMvc.perform(post("/api/basket/add").param("wineId", String.valueOf(wine.getId()))
+                        .param("quantity", String.valueOf(wine.getQuantity() + 1)).session(session))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(post("/api/basket/add").param("wineId", String.valueOf(wine.getId())).session(session));
+
+        mockMvc.perform(post("/api/basket/remove").param("wineId", String.valueOf(anotherWine.getId())).session(session))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/basket/update").param("wineId", String.valueOf(wine.getId())).param("quantity", "0").session(session))
+                .andExpect(status().isBadRequest());
+    }
+}
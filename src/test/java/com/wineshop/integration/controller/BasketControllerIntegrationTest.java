@@ -7,11 +7,16 @@ import com.wineshop.repository.BasketRepository;
 import com.wineshop.repository.WineRepository;
 import com.wineshop.service.BasketService;
 import com.wineshop.util.BaseTestSetup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,6 +49,12 @@ public class BasketControllerIntegrationTest extends BaseTestSetup {
     @Autowired
     private BasketService basketService;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
     private Wine wine;
 
     @BeforeEach
@@ -66,7 +77,45 @@ public class BasketControllerIntegrationTest extends BaseTestSetup {
                 .andExpect(view().name("basket"))
                 .andExpect(model().attributeExists("items", "totalCost"))
                 .andExpect(model().attribute("items", List.of()))
-                .andExpect(model().attribute("totalCost", BigDecimal.ZERO));
+                .andExpect(model().attribute("totalCost", new BigDecimal("0.00")));
+    }
+
+    // Test that rendering a filled basket page costs a single statement
+    @Test
+    public void testShouldRenderBasketWithOneQuery() throws Exception {
+        Wine secondWine = wineRepository.findAll().get(1);
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(secondWine.getId())).sessionAttr("sessionId", "abc123"));
+        // The test transaction spans the adds, so their pending updates are written before counting
+        entityManager.flush();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/basket").sessionAttr("sessionId", "abc123"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("items", org.hamcrest.Matchers.hasSize(2)));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    // Test that viewing the basket with a new session writes nothing and the first add creates the basket
+    @Test
+    public void testShouldCreateBasketOnlyOnFirstAdd() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        long baskets = basketRepository.count();
+
+        mockMvc.perform(get("/basket").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("items", List.of()))
+                .andExpect(model().attribute("totalCost", new BigDecimal("0.00")));
+        assertThat(basketRepository.count()).isEqualTo(baskets);
+
+        mockMvc.perform(post("/basket/add").param("wineId", String.valueOf(wine.getId())).session(session))
+                .andExpect(status().isOk());
+        assertThat(basketRepository.findBySessionId(session.getId())).isPresent();
     }
 
     // Test if a product is successfully added to the basket.
@@ -119,6 +168,123 @@ public class BasketControllerIntegrationTest extends BaseTestSetup {
 
     }
 
+    // Test that the update form rejects a zero or negative quantity and leaves the line and totals as they were
+    @Test
+    public void testShouldRejectQuantityBelowOne() throws Exception{
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+
+        for(String quantity : List.of("0", "-5")){
+            mockMvc.perform(post("/basket/update")
+                            .param("wineIds", String.valueOf(wine.getId()))
+                            .param("quantities", quantity)
+                            .sessionAttr("sessionId", "abc123"))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(redirectedUrl("/basket"));
+        }
+
+        List<BasketItem> items = basketItemRepository.findAll();
+        assertThat(items).extracting(BasketItem::getQuantity).containsExactly(1);
+        mockMvc.perform(get("/basket").sessionAttr("sessionId", "abc123"))
+                .andExpect(model().attribute("totalCost", wine.getPrice().setScale(2)));
+    }
+
+    // Test that removing from a purged basket, or from a session that never had one, redirects as if it was removed
+    @Test
+    public void testShouldTreatRemoveFromPurgedBasketAsRemoved() throws Exception {
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+
+        mockMvc.perform(post("/basket/remove")
+                        .param("wineId", String.valueOf(wine.getId()))
+                        .sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"));
+        mockMvc.perform(post("/basket/remove")
+                        .param("wineId", String.valueOf(wine.getId()))
+                        .session(new MockHttpSession()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"));
+    }
+
+    // Test that removing an item already swept from the basket redirects as if it was removed
+    @Test
+    public void testShouldTreatRemoveOfSweptItemAsRemoved() throws Exception {
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+        basketItemRepository.deleteAll();
+
+        mockMvc.perform(post("/basket/remove")
+                        .param("wineId", String.valueOf(wine.getId()))
+                        .sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"));
+    }
+
+    // Test that updating a purged basket or a swept item redirects to the basket with a message
+    @Test
+    public void testShouldRedirectWithMessageWhenUpdatingChangedBasket() throws Exception {
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+        basketItemRepository.deleteAll();
+
+        mockMvc.perform(post("/basket/update")
+                        .param("wineIds", String.valueOf(wine.getId()))
+                        .param("quantities", "2")
+                        .sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"))
+                .andExpect(flash().attributeExists("errorMessage"));
+
+        basketRepository.deleteAll();
+        mockMvc.perform(post("/basket/update")
+                        .param("wineIds", String.valueOf(wine.getId()))
+                        .param("quantities", "2")
+                        .sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"))
+                .andExpect(flash().attributeExists("errorMessage"));
+    }
+
+    // Test that raising a quantity past the stock redirects to the basket with the stock left and changes nothing
+    @Test
+    public void testShouldRedirectWithStockLeftWhenUpdatingPastStock() throws Exception {
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+
+        mockMvc.perform(post("/basket/update")
+                        .param("wineIds", String.valueOf(wine.getId()))
+                        .param("quantities", String.valueOf(wine.getQuantity() + 1))
+                        .sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"))
+                .andExpect(flash().attribute("errorMessage",
+                        org.hamcrest.Matchers.endsWith("Only " + (wine.getQuantity() - 1) + " more available.")));
+
+        assertThat(basketItemRepository.findAll()).extracting(BasketItem::getQuantity).containsExactly(1);
+    }
+
+    // Test that adding a wine whose stock is all in the basket redirects to the basket with a message
+    @Test
+    public void testShouldRedirectWithMessageWhenAddingPastStock() throws Exception {
+        mockMvc.perform(post("/basket/add")
+                .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"));
+        mockMvc.perform(post("/basket/update")
+                .param("wineIds", String.valueOf(wine.getId()))
+                .param("quantities", String.valueOf(wine.getQuantity()))
+                .sessionAttr("sessionId", "abc123"));
+
+        mockMvc.perform(post("/basket/add")
+                        .param("wineId", String.valueOf(wine.getId())).sessionAttr("sessionId", "abc123"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/basket"))
+                .andExpect(flash().attribute("errorMessage", org.hamcrest.Matchers.endsWith("Only 0 more available.")));
+
+        assertThat(basketItemRepository.findAll()).extracting(BasketItem::getQuantity).containsExactly(wine.getQuantity());
+    }
+
     // Test if multiple products are successfully added to the basket.
     @Test
     public void testShouldAddMultipleProductsToBasket() throws Exception {
@@ -148,7 +314,7 @@ public class BasketControllerIntegrationTest extends BaseTestSetup {
 
         mockMvc.perform(get("/basket").sessionAttr("sessionId", "abc123"))
                 .andExpect(status().isOk())
-                .andExpect(model().attribute("totalCost", wine.getPrice().add(secondWine.getPrice())));
+                .andExpect(model().attribute("totalCost", wine.getPrice().add(secondWine.getPrice()).setScale(2)));
     }
 
     // Test if trying to add a non-existing product returns a bad request.
@@ -1,8 +1,12 @@
 package com.wineshop.integration.controller;
 
+import com.wineshop.catalog.WineListing;
 import com.wineshop.model.Wine;
 import com.wineshop.repository.WineRepository;
 import com.wineshop.util.BaseTestSetup;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +18,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +33,9 @@ public class WineControllerIntegrationTest extends BaseTestSetup {
     @Autowired
     private WineRepository wineRepository; // Actual repository for integration
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     void setUp(){
         initTestData(); // Initialize test data using BaseTestSetup
@@ -53,12 +61,44 @@ public class WineControllerIntegrationTest extends BaseTestSetup {
                 .param("price", "40-50"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("index"))
-                .andExpect(model().attributeExists("wines", "searched"))
+                .andExpect(model().attributeExists("wines", "searched", "facets"))
                 .andExpect(model().attribute("wines", org.hamcrest.Matchers.hasSize(1))) // 1 wine matches
                 .andExpect(model().attribute("wines", org.hamcrest.Matchers.contains(
                         org.hamcrest.Matchers.hasProperty("name", org.hamcrest.Matchers.is("Merlot")))));
     }
 
+    // Tests that a cursor written by a name sort and sent with a price sort restarts the listing instead of failing
+    @Test
+    void testShouldIgnoreCursorFromAnotherSort() throws Exception{
+        String nameCursor = (String) mockMvc.perform(get("/wines").param("sort", "name_asc").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel().get("nextCursor");
+
+        mockMvc.perform(get("/wines").param("sort", "price_asc").param("after", nameCursor).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attribute("wines", org.hamcrest.Matchers.contains(
+                        org.hamcrest.Matchers.hasProperty("name", org.hamcrest.Matchers.is("Pinot Noir")),
+                        org.hamcrest.Matchers.hasProperty("name", org.hamcrest.Matchers.is("ERA Cabernet")))));
+    }
+
+    // Tests that a price cursor replayed under the alcohol sort, whose key it would parse as, starts from the first page
+    @Test
+    void testShouldIgnorePriceCursorUnderAlcoholSort() throws Exception{
+        String priceCursor = (String) mockMvc.perform(get("/wines").param("sort", "price_asc").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel().get("nextCursor");
+        List<?> firstAlcoholPage = (List<?>) mockMvc.perform(get("/wines").param("sort", "alcohol_asc").param("size", "2"))
+                .andReturn().getModelAndView().getModel().get("wines");
+
+        List<?> replayed = (List<?>) mockMvc.perform(get("/wines").param("sort", "alcohol_asc").param("after", priceCursor).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("previousCursor", (Object) null))
+                .andReturn().getModelAndView().getModel().get("wines");
+        assertThat(replayed).extracting("name").containsExactlyElementsOf(
+                firstAlcoholPage.stream().map(wine -> ((WineListing) wine).getName()).toList());
+    }
+
     // Tests if wine details are correctly returned when a valid ID is provided
     @Test
     void testShouldReturnWineDetails() throws Exception {
@@ -71,6 +111,40 @@ public class WineControllerIntegrationTest extends BaseTestSetup {
                 .andExpect(model().attribute("wine", org.hamcrest.Matchers.hasProperty("name", org.hamcrest.Matchers.is(wine.getName()))));
     }
 
+    // Tests that a repeated request with the returned ETag gets 304 without loading the wine
+    @Test
+    void testShouldAnswerConditionalRequestWithNotModified() throws Exception {
+        Wine wine = wineRepository.findAll().get(0);
+        String etag = mockMvc.perform(get("/wines/" + wine.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/wines/" + wine.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // Tests that updating a wine changes its ETag so clients get the new page
+    @Test
+    void testShouldRenderAgainAfterWineChanges() throws Exception {
+        Wine wine = wineRepository.findAll().get(0);
+        String etag = mockMvc.perform(get("/wines/" + wine.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        wine.setPrice(wine.getPrice().add(BigDecimal.ONE));
+        wineRepository.save(wine);
+
+        mockMvc.perform(get("/wines/" + wine.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(view().name("wine-details"))
+                .andExpect(header().string("ETag", org.hamcrest.Matchers.not(etag)));
+    }
+
     // Tests if an error message is displayed when a wine ID does not exist
     @Test
     void testShouldReturnErrorWhenWineNotFound() throws Exception {
@@ -0,0 +1,133 @@
+package com.wineshop.integration.datasource;
+
+import com.wineshop.datasource.ReplicaPolicy;
+import com.wineshop.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceIntegrationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Clears the read-only flag set by hand in the tests that call the router directly
+    @AfterEach
+    void tearDown(){
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    // Test that read-only transactions read from the replica and all others from the primary
+    @Test
+    void testShouldSendReadOnlyTransactionsToReplica(){
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                router(database("primary"), List.of(database("replica")), ReplicaPolicy.ROUND_ROBIN));
+
+        assertThat(serverName(dataSource, true)).isEqualTo("replica");
+        assertThat(serverName(dataSource, false)).isEqualTo("primary");
+    }
+
+    // Test that round-robin hands read-only transactions to the replicas in turn
+    @Test
+    void testShouldRotateReplicasRoundRobin(){
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                router(database("primary"), List.of(database("replica-a"), database("replica-b")), ReplicaPolicy.ROUND_ROBIN));
+
+        assertThat(List.of(serverName(dataSource, true), serverName(dataSource, true), serverName(dataSource, true)))
+                .containsExactly("replica-a", "replica-b", "replica-a");
+    }
+
+    // Test that least-connections picks the replica with fewer open connections
+    @Test
+    void testShouldPickReplicaWithLeastConnections() throws SQLException {
+        ReplicaRoutingDataSource router = router(database("primary"), List.of(database("replica-a"), database("replica-b")),
+                ReplicaPolicy.LEAST_CONNECTIONS);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try(Connection first = router.getConnection(); Connection second = router.getConnection()){
+            assertThat(serverName(first)).isEqualTo("replica-a");
+            assertThat(serverName(second)).isEqualTo("replica-b");
+        }
+        try(Connection held = router.getConnection()){
+            assertThat(serverName(held)).isEqualTo("replica-a");
+            try(Connection next = router.getConnection()){
+                assertThat(serverName(next)).isEqualTo("replica-b");
+            }
+        }
+    }
+
+    // Test that connections asked for with credentials are routed like the others
+    @Test
+    void testShouldRouteConnectionsWithCredentials() throws SQLException {
+        ReplicaRoutingDataSource router = router(database("primary"), List.of(database("replica")), ReplicaPolicy.ROUND_ROBIN);
+
+        try(Connection connection = router.getConnection("", "")){
+            assertThat(serverName(connection)).isEqualTo("primary");
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try(Connection connection = router.getConnection("", "")){
+            assertThat(serverName(connection)).isEqualTo("replica");
+        }
+    }
+
+    // Test that reads fall back to the primary when the replica cannot be reached
+    @Test
+    void testShouldFallBackToPrimaryWhenReplicaIsDown(){
+        JdbcDataSource missing = new JdbcDataSource();
+        missing.setURL("jdbc:h2:mem:missing-" + UUID.randomUUID() + ";IFEXISTS=TRUE");
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                router(database("primary"), List.of(missing), ReplicaPolicy.ROUND_ROBIN));
+
+        assertThat(serverName(dataSource, true)).isEqualTo("primary");
+        assertThat(serverName(dataSource, true)).isEqualTo("primary");
+        assertThat(meterRegistry.counter("wineshop.datasource.replica.fallbacks").count()).isEqualTo(2);
+    }
+
+    private ReplicaRoutingDataSource router(DataSource primary, List<DataSource> replicas, ReplicaPolicy policy){
+        return new ReplicaRoutingDataSource(primary, replicas, policy, Duration.ofSeconds(30), Clock.systemUTC(), meterRegistry);
+    }
+
+    // In-memory database with a single row naming it
+    private static DataSource database(String name){
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try(Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()){
+            statement.execute("create table server (name varchar(20))");
+            statement.execute("insert into server values ('" + name + "')");
+        }catch (SQLException ex){
+            throw new IllegalStateException(ex);
+        }
+        return dataSource;
+    }
+
+    // Name of the database a transaction reads from
+    private static String serverName(DataSource dataSource, boolean readOnly){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from server", String.class));
+    }
+
+    private static String serverName(Connection connection) throws SQLException {
+        try(Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("select name from server")){
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
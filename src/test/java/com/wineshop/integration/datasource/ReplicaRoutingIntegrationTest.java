@@ -0,0 +1,119 @@
+package com.wineshop.integration.datasource;
+
+import com.wineshop.catalog.CatalogResultCache;
+import com.wineshop.catalog.WineCatalogIndex;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.catalog.WineSearchIndex;
+import com.wineshop.catalog.WineVersionCache;
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.DictionaryChangedEvent;
+import com.wineshop.model.Color;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.service.WineService;
+import com.wineshop.util.BaseTestSetup;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "wineshop.datasource.replicas.urls=" + ReplicaRoutingIntegrationTest.REPLICA_URL)
+@ActiveProfiles("test")
+public class ReplicaRoutingIntegrationTest extends BaseTestSetup {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    @Autowired
+    WineService wineService;
+
+    @Autowired
+    ReferenceDataRegistry referenceDataRegistry;
+
+    @Autowired
+    CatalogResultCache catalogResultCache;
+
+    @Autowired
+    PrimaryReads primaryReads;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // Gives the replica the same schema as the primary but none of its rows, before the application starts reading
+    @BeforeAll
+    static void migrateReplica(){
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        initTestData();
+    }
+
+    // Test that writes and read-write transactions use the primary while read-only ones read the replica
+    @Test
+    void testShouldReadFromReplicaOnlyInReadOnlyTransactions(){
+        int wineId = transactionOperations.execute(status -> wineRepository.findAll().get(0).getId());
+        basketItemService.addOrUpdateBasketItem("replicated", wineId, 1);
+
+        long primaryCount = transactionOperations.execute(status -> wineRepository.count());
+        assertThat(primaryCount).isEqualTo(9);
+        assertThat(wineRepository.count()).isZero();
+        assertThat(basketItemService.getBasketItems("replicated")).isEmpty();
+    }
+
+    // Test that caches emptied by a change reload from the primary, not from a replica that has not caught up
+    @Test
+    void testShouldReloadCachesFromPrimary(){
+        int wineId = transactionOperations.execute(status -> wineRepository.findAll().get(0).getId());
+        referenceDataRegistry.onDictionaryChanged(new DictionaryChangedEvent(new Color("Red")));
+        catalogResultCache.invalidateAll();
+
+        assertThat(referenceDataRegistry.get().colors().idOf("Red")).isNotNull();
+        assertThat(wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.firstPage()).wines())
+                .isNotEmpty();
+        assertThat(new WineVersionCache(wineRepository, primaryReads).validatorsFor(wineId)).isNotNull();
+    }
+
+    // Test that the catalog and search indexes build from the primary even when first used in a read-only transaction
+    @Test
+    void testShouldBuildIndexesFromPrimary(){
+        WineCatalogIndex catalogIndex = new WineCatalogIndex(wineRepository, primaryReads);
+        WineSearchIndex searchIndex = new WineSearchIndex(wineRepository, primaryReads);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            assertThat(catalogIndex.filter(WineFilter.of(null, null, null, null, null, null))).hasSize(9);
+            assertThat(searchIndex.search("merlot")).hasSize(1);
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.wineshop.integration.reference;
+
+import com.wineshop.model.Color;
+import com.wineshop.reference.ReferenceData;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.util.BaseTestSetup;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test") // Use the "test" profile for database configuration
+public class ReferenceDataRegistryTest extends BaseTestSetup {
+
+    @Autowired
+    ReferenceDataRegistry referenceDataRegistry;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp(){
+        initTestData(); // Initialize test data
+    }
+
+    // Tests lookups by name and ID and that repeated lookups do not reach the database
+    @Test
+    void testShouldResolveDictionariesFromMemory(){
+        Color red = colorRepository.findAll().stream().filter(color -> color.getName().equals("Red")).findFirst().orElseThrow();
+        referenceDataRegistry.get();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ReferenceData referenceData = referenceDataRegistry.get();
+
+        assertThat(referenceData.colors().idOf("Red")).isEqualTo(red.getId());
+        assertThat(referenceData.colors().nameOf(red.getId())).isEqualTo("Red");
+        assertThat(referenceData.flavours().values()).hasSize(4);
+        assertThat(referenceData.types().byName("Sparkling")).isNotNull();
+        assertThat(referenceData.colors().idOf("Black")).isNull();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // Tests that saving a dictionary entry is visible on the next lookup
+    @Test
+    void testShouldReloadAfterDictionaryChange(){
+        assertThat(referenceDataRegistry.get().colors().byName("Orange")).isNull();
+
+        Color orange = colorRepository.save(new Color("Orange"));
+
+        assertThat(referenceDataRegistry.get().colors().idOf("Orange")).isEqualTo(orange.getId());
+    }
+}
@@ -0,0 +1,110 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.basket.AbandonedBasketPurger;
+import com.wineshop.model.Basket;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.service.StockReservationService;
+import com.wineshop.util.BaseTestSetup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class AbandonedBasketPurgerIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    WineRepository wineRepository;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AbandonedBasketPurger purger;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        meterRegistry = new SimpleMeterRegistry();
+        purger = new AbandonedBasketPurger(basketRepository, basketItemRepository, stockReservationService, transactionOperations,
+                meterRegistry, Duration.ofDays(7), 2);
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that idle baskets are deleted chunk by chunk with their items, stock is released and active baskets stay
+    @Test
+    void testShouldPurgeIdleBasketsInChunks(){
+        List<Wine> wines = wineRepository.findAll();
+        Wine wine = wines.get(0);
+        Instant now = Instant.now();
+
+        for(String sessionId : List.of("idle-1", "idle-2", "idle-3", "active")){
+            basketItemService.addOrUpdateBasketItem(sessionId, wine.getId(), 1);
+            basketItemService.addOrUpdateBasketItem(sessionId, wines.get(1).getId(), 1);
+        }
+        for(String sessionId : List.of("idle-1", "idle-2", "idle-3")){
+            transactionOperations.executeWithoutResult(status ->
+                    basketRepository.touchBySessionId(sessionId, now.minus(Duration.ofDays(8))));
+        }
+
+        int purged = purger.purge(now);
+
+        assertThat(purged).isEqualTo(3);
+        assertThat(basketRepository.findAll()).extracting(Basket::getSessionId).containsExactly("active");
+        assertThat(basketItemRepository.findAll()).hasSize(2);
+        assertThat(stockReservationService.availableQuantity(wine.getId())).isEqualTo(wine.getQuantity() - 1);
+
+        assertThat(meterRegistry.get("wineshop.basket.purge.baskets").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("wineshop.basket.purge.items").counter().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("wineshop.basket.purge.chunk").timer().count()).isEqualTo(2);
+    }
+
+    // Test that baskets active within the idle TTL are kept
+    @Test
+    void testShouldKeepBasketsWithRecentActivity(){
+        Wine wine = wineRepository.findAll().get(0);
+        basketItemService.addOrUpdateBasketItem("recent", wine.getId(), 1);
+
+        assertThat(purger.purge(Instant.now())).isZero();
+        assertThat(basketRepository.findBySessionId("recent")).isPresent();
+    }
+}
@@ -0,0 +1,157 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.exception.NotEnoughStockException;
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.service.StockReservationService;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class BasketConcurrencyIntegrationTest extends BaseTestSetup {
+
+    private static final Logger logger = LoggerFactory.getLogger(BasketConcurrencyIntegrationTest.class);
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    WineRepository wineRepository;
+
+    private Wine hotWine;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        hotWine = wineRepository.findAll().stream()
+                .filter(wine -> wine.getName().equals("Pinot Noir"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that concurrent adds of a hot wine from several baskets never reserve more than its stock and fail only for stock
+    @Test
+    void testShouldNotOversellHotWineUnderConcurrentAdds() throws Exception {
+        int attemptsPerThread = 20;
+        AtomicInteger sessions = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        long elapsedNanos = runConcurrently(THREADS, () -> {
+            // Half of the threads share a basket, the others each have their own
+            int thread = sessions.incrementAndGet();
+            String sessionId = "hot-session-" + (thread % 2 == 0 ? 0 : thread);
+            for(int i = 0; i < attemptsPerThread; i++){
+                try{
+                    basketItemService.addOrUpdateBasketItem(sessionId, hotWine.getId(), 1);
+                    added.incrementAndGet();
+                }catch(NotEnoughStockException ex){
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        int attempts = THREADS * attemptsPerThread;
+        logger.info("{} concurrent adds of one wine in {} ms ({} adds/s)",
+                attempts, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), attempts * 1_000_000_000L / elapsedNanos);
+
+        List<BasketItem> items = basketItemRepository.findAll();
+
+        assertThat(added.get()).isEqualTo(hotWine.getQuantity());
+        assertThat(rejected.get()).isEqualTo(attempts - hotWine.getQuantity());
+        assertThat(items.stream().mapToInt(BasketItem::getQuantity).sum()).isEqualTo(hotWine.getQuantity());
+        assertThat(items).allSatisfy(item -> assertThat(item.getPrice())
+                .isEqualByComparingTo(hotWine.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))));
+        assertThat(stockReservationService.availableQuantity(hotWine.getId())).isZero();
+    }
+
+    // Test that simultaneous first adds for the same session create one basket and one item instead of failing
+    @Test
+    void testShouldMergeSimultaneousFirstAddsForOneSession() throws Exception {
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        runConcurrently(THREADS, () -> {
+            try{
+                basketItemService.addOrUpdateBasketItem("double-click", hotWine.getId(), 1);
+            }catch(RuntimeException ex){
+                failures.add(ex);
+            }
+        });
+
+        assertThat(failures).isEmpty();
+        Basket basket = basketRepository.findBySessionId("double-click").orElseThrow();
+        assertThat(basketItemRepository.findByBasket(basket))
+                .singleElement()
+                .extracting(BasketItem::getQuantity)
+                .isEqualTo(THREADS);
+    }
+
+    // Starts the task on the given number of threads at the same moment and returns the time until all finished
+    private long runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        try{
+            for(int i = 0; i < threads; i++){
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+
+            start.await();
+            long startedAt = System.nanoTime();
+            for(Future<?> future : futures){
+                future.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - startedAt;
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+}
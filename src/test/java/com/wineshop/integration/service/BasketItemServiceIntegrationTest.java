@@ -1,4 +1,5 @@
 package com.wineshop.integration.service;
+import com.wineshop.basket.BasketView;
 import com.wineshop.exception.NotEnoughStockException;
 import com.wineshop.model.Basket;
 import com.wineshop.model.BasketItem;
@@ -8,6 +9,9 @@ import com.wineshop.repository.BasketRepository;
 import com.wineshop.repository.WineRepository;
 import com.wineshop.service.BasketItemService;
 import com.wineshop.util.BaseTestSetup;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +22,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -36,6 +42,9 @@ public class BasketItemServiceIntegrationTest extends BaseTestSetup {
     @Autowired
     WineRepository wineRepository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     private Basket basket;
 
     private Wine wine;
@@ -151,4 +160,74 @@ public class BasketItemServiceIntegrationTest extends BaseTestSetup {
         assertThat(totalCost).isEqualByComparingTo(BigDecimal.valueOf(240).add(BigDecimal.valueOf(80)));
     }
 
-}
\ No newline at end of file
+    // Test updating quantities of a whole basket with one read of items and wines and one batched update
+    @Test
+    void testShouldUpdateAllQuantitiesInOneBatch(){
+        List<Wine> wines = wineRepository.findAll().subList(0, 5);
+        wines.forEach(w -> basketItemService.addOrUpdateBasketItem(basket.getSessionId(), w.getId(), 1));
+
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        wines.forEach(w -> quantities.put(w.getId(), 2));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        basketItemService.updateBasketItemQuantities(basket.getSessionId(), quantities);
+
+        // Basket touch and lookup, items with wines, one reservation update per wine, one batched item update, basket totals
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5 + wines.size());
+        assertThat(basketItemRepository.findByBasket(basket)).extracting(BasketItem::getQuantity).containsOnly(2);
+    }
+
+    // Test that one item over stock rejects the whole batch and leaves every quantity unchanged
+    @Test
+    void testShouldRejectWholeBatchWhenOneItemExceedsStock(){
+        Wine anotherWine = wineRepository.findAll().get(1);
+        basketItemService.addOrUpdateBasketItem(basket.getSessionId(), wine.getId(), 1);
+        basketItemService.addOrUpdateBasketItem(basket.getSessionId(), anotherWine.getId(), 1);
+
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(wine.getId(), 2);
+        quantities.put(anotherWine.getId(), anotherWine.getQuantity() + 1);
+
+        assertThatThrownBy(() -> basketItemService.updateBasketItemQuantities(basket.getSessionId(), quantities))
+                .isInstanceOf(NotEnoughStockException.class);
+        assertThat(basketItemRepository.findByBasket(basket)).extracting(BasketItem::getQuantity).containsOnly(1);
+    }
+
+    // Test that items, their wines and the total are read with exactly one statement
+    @Test
+    void testShouldLoadBasketViewWithOneQuery(){
+        List<Wine> wines = wineRepository.findAll();
+        basketItemService.addOrUpdateBasketItem(basket.getSessionId(), wines.get(0).getId(), 2);
+        basketItemService.addOrUpdateBasketItem(basket.getSessionId(), wines.get(5).getId(), 1);
+        basketItemService.addOrUpdateBasketItem(basket.getSessionId(), wines.get(8).getId(), 3);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BasketView view = basketItemService.getBasketView(basket.getSessionId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(view.items()).extracting(item -> item.getWine().getColor().getName()).doesNotContainNull();
+        assertThat(view.totalCost()).isEqualByComparingTo(basketItemService.calculateTotalCost(basket.getSessionId()));
+    }
+
+    // Test that read paths treat a session without a basket as an empty basket
+    @Test
+    void testShouldReadMissingBasketAsEmpty(){
+        assertThat(basketItemService.getBasketItems("no-basket")).isEmpty();
+        assertThat(basketItemService.calculateTotalCost("no-basket")).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(basketItemService.getBasketView("no-basket").items()).isEmpty();
+    }
+
+    // Test that an add rejected for stock does not leave an empty basket behind
+    @Test
+    void testShouldNotCreateBasketWhenFirstAddFails(){
+        assertThatThrownBy(() -> basketItemService.addOrUpdateBasketItem("new-session", wine.getId(), wine.getQuantity() + 1))
+                .isInstanceOf(NotEnoughStockException.class);
+
+        assertThat(basketRepository.findBySessionId("new-session")).isEmpty();
+    }
+
+}
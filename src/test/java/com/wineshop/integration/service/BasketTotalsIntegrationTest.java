@@ -0,0 +1,112 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.basket.BasketTotalsReconciler;
+import com.wineshop.basket.Money;
+import com.wineshop.model.Basket;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class BasketTotalsIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    BasketTotalsReconciler basketTotalsReconciler;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    WineRepository wineRepository;
+
+    private Wine wine;
+
+    private Wine anotherWine;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        List<Wine> wines = wineRepository.findAll();
+        wine = wines.get(0);
+        anotherWine = wines.get(1);
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that adds, quantity changes and removals keep the stored count and total equal to the items
+    @Test
+    void testShouldMaintainTotalsAcrossBasketChanges(){
+        basketItemService.addOrUpdateBasketItem("totals", wine.getId(), 2);
+        basketItemService.addOrUpdateBasketItem("totals", wine.getId(), 1);
+        basketItemService.addOrUpdateBasketItem("totals", anotherWine.getId(), 2);
+        assertThat(basketItemService.getBasketSummary("totals").itemCount()).isEqualTo(5);
+
+        basketItemService.updateBasketItemQuantity("totals", wine.getId(), 1);
+        basketItemService.updateBasketItemQuantities("totals", Map.of(anotherWine.getId(), 4));
+        basketItemService.removeBasketItem("totals", wine.getId());
+
+        BasketSummary summary = basketItemService.getBasketSummary("totals");
+        assertThat(summary.itemCount()).isEqualTo(4);
+        assertThat(summary.totalCost()).isEqualTo(Money.of(anotherWine.getPrice()).times(4));
+        assertThat(summary.lastActivityAt()).isNotNull();
+        assertThat(basketItemService.calculateTotalCost("totals"))
+                .isEqualTo(basketItemService.getBasketView("totals").totalCost());
+    }
+
+    // Test that a session without a basket reads the empty summary
+    @Test
+    void testShouldReadEmptySummaryWithoutBasket(){
+        assertThat(basketItemService.getBasketSummary("no-basket")).isEqualTo(BasketSummary.EMPTY);
+    }
+
+    // Test that the reconciler overwrites drifted totals and leaves correct baskets alone
+    @Test
+    void testShouldCorrectDriftedTotals(){
+        basketItemService.addOrUpdateBasketItem("drifted", wine.getId(), 2);
+        basketItemService.addOrUpdateBasketItem("correct", anotherWine.getId(), 1);
+
+        Basket drifted = basketRepository.findBySessionId("drifted").orElseThrow();
+        drifted.resetTotals(7, Money.of(new BigDecimal("1.00")));
+        basketRepository.save(drifted);
+
+        assertThat(basketTotalsReconciler.reconcile()).isEqualTo(1);
+
+        BasketSummary summary = basketItemService.getBasketSummary("drifted");
+        assertThat(summary.itemCount()).isEqualTo(2);
+        assertThat(summary.totalCost()).isEqualTo(Money.of(wine.getPrice()).times(2));
+        assertThat(basketTotalsReconciler.reconcile()).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.catalog.WineFacets;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.service.WineService;
+import com.wineshop.util.BaseTestSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test") // Use the "test" profile for database configuration
+public class CatalogResultCacheIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    WineService wineService;
+
+    @Autowired
+    ReferenceDataRegistry referenceDataRegistry;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp(){
+        initTestData(); // Initialize test data
+        referenceDataRegistry.get(); // Load dictionaries so statement counts cover only catalog queries
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Tests that a repeated search, even with blank sentinels and a differently scaled price, is served from the cache
+    @Test
+    void testShouldServeIdenticalSearchFromCache(){
+        WinePage first = wineService.findWinePage(WineFilter.of("Red", " ", " ", "40-50", null, null), null, WinePageRequest.firstPage());
+
+        statistics.clear();
+        WinePage second = wineService.findWinePage(WineFilter.of("Red", null, null, null, new BigDecimal("40.00"), new BigDecimal("50.0")),
+                null, WinePageRequest.of("price_asc", null, null, null));
+
+        assertThat(second.wines()).isEqualTo(first.wines());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "wineCatalog").tag("result", "hit").functionCounter().count())
+                .isPositive();
+    }
+
+    // Tests that changing the price of a listed wine evicts the entry
+    @Test
+    void testShouldEvictWhenListedWineChanges(){
+        WineFilter reds = WineFilter.of("Red", null, null, null, null, null);
+        wineService.findWinePage(reds, null, WinePageRequest.firstPage());
+
+        Wine merlot = findWine("Merlot");
+        merlot.setPrice(BigDecimal.valueOf(10));
+        wineRepository.save(merlot);
+
+        statistics.clear();
+        WinePage page = wineService.findWinePage(reds, null, WinePageRequest.firstPage());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(page.wines().get(0).getName()).isEqualTo("Merlot");
+    }
+
+    // Tests that a wine entering a filter evicts it while unrelated entries stay cached
+    @Test
+    void testShouldEvictOnlyAffectedFilters(){
+        WineFilter cheap = WineFilter.of(null, null, null, "<20", null, null);
+        WineFilter expensive = WineFilter.of(null, null, null, ">50", null, null);
+        wineService.findWinePage(cheap, null, WinePageRequest.firstPage());
+        wineService.findWinePage(expensive, null, WinePageRequest.firstPage());
+
+        Wine chardonnay = findWine("Chardonnay");
+        chardonnay.setPrice(BigDecimal.valueOf(15));
+        wineRepository.save(chardonnay);
+
+        statistics.clear();
+        WinePage cheapPage = wineService.findWinePage(cheap, null, WinePageRequest.firstPage());
+        assertThat(cheapPage.wines()).extracting(WineListing::getName).contains("Chardonnay");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        wineService.findWinePage(expensive, null, WinePageRequest.firstPage());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // Tests that a repeated catalog page, facet counts included, runs no statements
+    @Test
+    void testShouldServeRepeatedCatalogPageFromCache() throws Exception {
+        mockMvc.perform(get("/wines").param("color", "Red").param("price", "<20"))
+                .andExpect(status().isOk());
+
+        statistics.clear();
+        mockMvc.perform(get("/wines").param("color", "Red").param("price", "<20"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("wines", "facets"));
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // Tests that removing a wine evicts the cached facet counts
+    @Test
+    void testShouldEvictFacetsWhenWineRemoved(){
+        WineFilter all = WineFilter.of(null, null, null, null, null, null);
+        assertThat(wineService.countFacets(all, null).color("Pink")).isEqualTo(1);
+
+        wineRepository.delete(findWine("Pinot Noir"));
+
+        WineFacets facets = wineService.countFacets(all, null);
+        assertThat(facets.color("Pink")).isZero();
+        assertThat(facets.color("Red")).isEqualTo(4);
+    }
+
+    private Wine findWine(String name){
+        return wineRepository.findAll().stream().filter(wine -> wine.getName().equals(name)).findFirst().orElseThrow();
+    }
+}
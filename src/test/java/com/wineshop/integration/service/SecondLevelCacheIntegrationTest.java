@@ -0,0 +1,130 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.model.Color;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.service.WineService;
+import com.wineshop.util.BaseTestSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SecondLevelCacheIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    WineService wineService;
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    private Wine wine;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        wine = wineRepository.findAll().get(0);
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that a wine and its dictionaries are read from the database once and then from the cache
+    @Test
+    void testShouldServeRepeatedWineReadsFromCache(){
+        entityManagerFactory.getCache().evictAll();
+        wineService.findWineByIdOrThrow(wine.getId());
+
+        statistics.clear();
+        Wine cached = wineService.findWineByIdOrThrow(wine.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+        assertThat(cached.getColor().getName()).isEqualTo(wine.getColor().getName());
+    }
+
+    // Test that an edit of a wine is visible on the next cached read
+    @Test
+    void testShouldNotServeStaleWineAfterChanges(){
+        wineService.findWineByIdOrThrow(wine.getId());
+
+        wine.setPrice(new BigDecimal("99.00"));
+        wineRepository.save(wine);
+        assertThat(wineService.findWineByIdOrThrow(wine.getId()).getPrice()).isEqualByComparingTo("99.00");
+    }
+
+    // Test that reserving stock for a basket leaves the cached wine in place
+    @Test
+    void testShouldKeepWineCachedAcrossReservations(){
+        wineService.findWineByIdOrThrow(wine.getId());
+
+        basketItemService.addOrUpdateBasketItem("cached", wine.getId(), 2);
+        basketItemService.updateBasketItemQuantity("cached", wine.getId(), 1);
+
+        statistics.clear();
+        wineService.findWineByIdOrThrow(wine.getId());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // Test that a renamed dictionary entry is saved and read back under its new name
+    @Test
+    void testShouldRenameCachedDictionary(){
+        Color color = wine.getColor();
+        colorRepository.findById(color.getId()).orElseThrow();
+
+        color.setName("Renamed");
+        colorRepository.save(color);
+
+        assertThat(colorRepository.findById(color.getId()).orElseThrow().getName()).isEqualTo("Renamed");
+        assertThat(wineService.findWineByIdOrThrow(wine.getId()).getColor().getName()).isEqualTo("Renamed");
+    }
+
+    // Test that second-level cache statistics are published as metrics
+    @Test
+    void testShouldExposeCacheMetrics(){
+        wineService.findWineByIdOrThrow(wine.getId());
+        wineService.findWineByIdOrThrow(wine.getId());
+
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "hit").functionCounters())
+                .isNotEmpty();
+    }
+}
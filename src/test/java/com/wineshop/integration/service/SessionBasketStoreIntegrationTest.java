@@ -0,0 +1,173 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.basket.Money;
+import com.wineshop.basket.SessionBasketStore;
+import com.wineshop.exception.NotEnoughStockException;
+import com.wineshop.model.Basket;
+import com.wineshop.model.BasketItem;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.repository.WineStockRepository;
+import com.wineshop.service.StockReservationService;
+import com.wineshop.util.BaseTestSetup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SessionBasketStoreIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    WineStockRepository wineStockRepository;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    WineRepository wineRepository;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Wine wine;
+
+    private Wine anotherWine;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        List<Wine> wines = wineRepository.findAll();
+        wine = wines.get(0);
+        anotherWine = wines.get(1);
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that reads are answered from memory and a burst of changes reaches the database as one write of the final state
+    @Test
+    void testShouldServeReadsFromMemoryAndCoalesceWrites(){
+        SessionBasketStore store = createStore(Duration.ofMinutes(30));
+
+        store.addOrUpdateItem("memory", wine.getId(), 1);
+        store.addOrUpdateItem("memory", wine.getId(), 2);
+        store.addOrUpdateItem("memory", anotherWine.getId(), 1);
+        store.updateItemQuantity("memory", anotherWine.getId(), 2);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BasketSummary summary = store.getSummary("memory");
+        assertThat(store.getView("memory").items()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(summary.itemCount()).isEqualTo(5);
+        assertThat(summary.totalCost()).isEqualTo(Money.of(wine.getPrice()).times(3).plus(Money.of(anotherWine.getPrice()).times(2)));
+
+        // Nothing is written before the flush, but stock is already reserved
+        assertThat(basketRepository.findBySessionId("memory")).isEmpty();
+        assertThat(wineStockRepository.findAvailableQuantity(wine.getId()).orElseThrow()).isEqualTo(wine.getQuantity() - 3);
+
+        store.flush();
+
+        Basket basket = basketRepository.findBySessionId("memory").orElseThrow();
+        assertThat(basket.getItemCount()).isEqualTo(5);
+        assertThat(basket.getTotalCost()).isEqualTo(summary.totalCost());
+        assertThat(basketItemRepository.findByBasket(basket))
+                .extracting(item -> item.getWine().getId(), BasketItem::getQuantity)
+                .containsExactlyInAnyOrder(
+                        tuple(wine.getId(), 3),
+                        tuple(anotherWine.getId(), 2));
+    }
+
+    // Test that a removal is written as a delete and a rejected change leaves memory and stock unchanged
+    @Test
+    void testShouldWriteRemovalsAndRejectChangesWithoutStock(){
+        SessionBasketStore store = createStore(Duration.ofMinutes(30));
+        store.addOrUpdateItem("changes", wine.getId(), 1);
+        store.addOrUpdateItem("changes", anotherWine.getId(), 1);
+        store.flush();
+
+        store.removeItem("changes", wine.getId());
+        assertThatThrownBy(() -> store.updateItemQuantities("changes", Map.of(anotherWine.getId(), anotherWine.getQuantity() + 1)))
+                .isInstanceOf(NotEnoughStockException.class);
+        store.flush();
+
+        Basket basket = basketRepository.findBySessionId("changes").orElseThrow();
+        assertThat(basketItemRepository.findByBasket(basket))
+                .singleElement()
+                .satisfies(item -> {
+                    assertThat(item.getWine().getId()).isEqualTo(anotherWine.getId());
+                    assertThat(item.getQuantity()).isEqualTo(1);
+                });
+        assertThat(wineStockRepository.findAvailableQuantity(wine.getId()).orElseThrow()).isEqualTo(wine.getQuantity());
+        assertThat(wineStockRepository.findAvailableQuantity(anotherWine.getId()).orElseThrow()).isEqualTo(anotherWine.getQuantity() - 1);
+    }
+
+    // Test that closing a session writes its pending changes and a later read loads the basket back from the database
+    @Test
+    void testShouldWriteBasketWhenSessionCloses(){
+        SessionBasketStore store = createStore(Duration.ofMinutes(30));
+        store.addOrUpdateItem("closing", wine.getId(), 2);
+
+        store.close("closing");
+
+        assertThat(basketRepository.findBySessionId("closing").orElseThrow().getItemCount()).isEqualTo(2);
+        assertThat(createStore(Duration.ofMinutes(30)).getSummary("closing").itemCount()).isEqualTo(2);
+        assertThat(store.getItems("closing")).singleElement().extracting(BasketItem::getQuantity).isEqualTo(2);
+    }
+
+    // Test that reservations running out in memory release their stock once and drop the line from the stored basket
+    @Test
+    void testShouldExpireReservationsInMemory(){
+        SessionBasketStore store = createStore(Duration.ofSeconds(-1));
+        store.addOrUpdateItem("expiring", wine.getId(), 2);
+
+        assertThat(store.getSummary("expiring").itemCount()).isZero();
+        store.flush();
+
+        assertThat(wineStockRepository.findAvailableQuantity(wine.getId()).orElseThrow()).isEqualTo(wine.getQuantity());
+        assertThat(basketItemRepository.findAll()).isEmpty();
+    }
+
+    // Creates a store outside the application context, which runs the JPA store, with the given reservation time
+    private SessionBasketStore createStore(Duration reservationTtl){
+        StockReservationService stockReservationService = new StockReservationService(wineStockRepository, reservationTtl);
+        return new SessionBasketStore(basketRepository, basketItemRepository, wineRepository, stockReservationService,
+                transactionOperations, new SimpleMeterRegistry(), 100, Duration.ofMinutes(30), Duration.ofMinutes(5), 2);
+    }
+}
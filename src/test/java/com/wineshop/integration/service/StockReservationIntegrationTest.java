@@ -0,0 +1,159 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.basket.ExpiredReservationSweeper;
+import com.wineshop.exception.NotEnoughStockException;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.BasketItemRepository;
+import com.wineshop.repository.BasketRepository;
+import com.wineshop.repository.WineRepository;
+import com.wineshop.repository.WineStockRepository;
+import com.wineshop.service.BasketItemService;
+import com.wineshop.service.StockReservationService;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class StockReservationIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    BasketItemService basketItemService;
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    BasketItemRepository basketItemRepository;
+
+    @Autowired
+    BasketRepository basketRepository;
+
+    @Autowired
+    WineRepository wineRepository;
+
+    @Autowired
+    WineStockRepository wineStockRepository;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    private Wine wine;
+
+    @BeforeEach
+    void setUp(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+        wineRepository.deleteAll();
+
+        initTestData();
+
+        wine = wineRepository.findAll().get(0);
+    }
+
+    // Removes the baskets so later test classes can delete the wines they reference
+    @AfterEach
+    void tearDown(){
+        basketItemRepository.deleteAll();
+        basketRepository.deleteAll();
+    }
+
+    // Test that adding to a basket takes stock out of the available quantity for every other basket
+    @Test
+    void testShouldReserveStockAcrossBaskets(){
+        basketItemService.addOrUpdateBasketItem("first", wine.getId(), wine.getQuantity() - 1);
+
+        assertThat(availableQuantity()).isEqualTo(1);
+        assertThatThrownBy(() -> basketItemService.addOrUpdateBasketItem("second", wine.getId(), 2))
+                .isInstanceOf(NotEnoughStockException.class);
+
+        basketItemService.addOrUpdateBasketItem("second", wine.getId(), 1);
+        assertThat(availableQuantity()).isZero();
+    }
+
+    // Test that lowering a quantity and removing an item give the stock back
+    @Test
+    void testShouldReleaseStockOnUpdateAndRemove(){
+        basketItemService.addOrUpdateBasketItem("first", wine.getId(), 5);
+
+        basketItemService.updateBasketItemQuantity("first", wine.getId(), 2);
+        assertThat(availableQuantity()).isEqualTo(wine.getQuantity() - 2);
+
+        basketItemService.removeBasketItem("first", wine.getId());
+        assertThat(availableQuantity()).isEqualTo(wine.getQuantity());
+    }
+
+    // Test that raising the stock level of a sold-out wine makes the new bottles available at once
+    @Test
+    void testShouldMakeRestockAvailable(){
+        basketItemService.addOrUpdateBasketItem("first", wine.getId(), wine.getQuantity());
+        assertThat(availableQuantity()).isZero();
+
+        Wine restocked = wineRepository.findById(wine.getId()).orElseThrow();
+        restocked.setQuantity(wine.getQuantity() + 5);
+        wineRepository.save(restocked);
+
+        assertThat(availableQuantity()).isEqualTo(5);
+        basketItemService.addOrUpdateBasketItem("second", wine.getId(), 5);
+        assertThat(availableQuantity()).isZero();
+    }
+
+    // Test that a wine without a stock row, e.g. inserted with plain SQL, gets one on its first reservation
+    @Test
+    void testShouldReserveWineWithoutStockRow(){
+        wineStockRepository.deleteById(wine.getId());
+
+        basketItemService.addOrUpdateBasketItem("first", wine.getId(), 2);
+
+        assertThat(wineStockRepository.findById(wine.getId())).hasValueSatisfying(stock ->
+                assertThat(stock.getReservedQuantity()).isEqualTo(2));
+        assertThatThrownBy(() -> basketItemService.addOrUpdateBasketItem("second", wine.getId(), wine.getQuantity() - 1))
+                .isInstanceOf(NotEnoughStockException.class);
+    }
+
+    // Test that the sweeper removes expired items in batches and returns their stock, leaving live ones alone
+    @Test
+    void testShouldReleaseExpiredReservationsInBatches(){
+        List<Wine> wines = wineRepository.findAll().subList(0, 5);
+        wines.forEach(w -> basketItemService.addOrUpdateBasketItem("expired", w.getId(), 1));
+        basketItemService.addOrUpdateBasketItem("live", wine.getId(), 1);
+
+        Instant expiredOnly = Instant.now().plus(Duration.ofHours(1));
+        basketItemRepository.findAll().stream()
+                .filter(item -> item.getBasket().getSessionId().equals("live"))
+                .forEach(item -> {
+                    item.setReservedUntil(expiredOnly.plus(Duration.ofHours(1)));
+                    basketItemRepository.save(item);
+                });
+
+        ExpiredReservationSweeper sweeper =
+                new ExpiredReservationSweeper(basketRepository, basketItemRepository, stockReservationService, transactionOperations, 2);
+        int released = sweeper.sweep(expiredOnly);
+
+        assertThat(released).isEqualTo(wines.size());
+        assertThat(basketItemRepository.findAll())
+                .singleElement()
+                .extracting(item -> item.getBasket().getSessionId())
+                .isEqualTo("live");
+        assertThat(availableQuantity()).isEqualTo(wine.getQuantity() - 1);
+        wines.subList(1, wines.size()).forEach(w ->
+                assertThat(stockReservationService.availableQuantity(w.getId())).isEqualTo(w.getQuantity()));
+    }
+
+    // Available quantity of the test wine as currently stored
+    private int availableQuantity(){
+        return stockReservationService.availableQuantity(wine.getId());
+    }
+}
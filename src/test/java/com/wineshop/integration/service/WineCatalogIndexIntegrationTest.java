@@ -0,0 +1,106 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.catalog.WineFacets;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.model.Wine;
+import com.wineshop.service.WineService;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@SpringBootTest(properties = "wineshop.catalog.engine=index")
+@ActiveProfiles("test") // Use the "test" profile for database configuration
+public class WineCatalogIndexIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    WineService wineService;
+
+    @BeforeEach
+    void setUp(){
+        initTestData(); // Initialize test data
+    }
+
+    // Tests filtering red, dry wines within the price range of 40-50 from the index
+    @Test
+    void testFilterWinesWithAllCriteria(){
+        List<Wine> result = wineService.filterWines("Red", "Dry", null, "40-50");
+
+        assertThat(result).extracting(Wine::getName).containsExactly("Merlot");
+    }
+
+    // Tests filtering by price range 20-30 from the index
+    @Test
+    void testFilterWinesByPriceOnly(){
+        List<Wine> result = wineService.filterWines(null, null, null, "20-30");
+
+        assertThat(result).extracting(Wine::getName)
+                .containsExactlyInAnyOrder("Chardonnay", "Rkatsiteli", "ERA Cabernet");
+    }
+
+    // Tests keyset paging over the in-memory index in both directions
+    @Test
+    void testShouldPageThroughWinesByPrice(){
+        WinePage first = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_desc", null, null, 4));
+        assertThat(first.wines()).extracting(WineListing::getName)
+                .containsExactly("Cabernet Sauvignon", "Sauvignon Blanc", "Prosecco", "Merlot");
+
+        WinePage second = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_desc", first.nextCursor(), null, 4));
+        assertThat(second.wines()).extracting(WineListing::getName)
+                .containsExactly("Kindzmarauli", "Rkatsiteli", "Chardonnay", "ERA Cabernet");
+
+        WinePage back = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_desc", null, second.previousCursor(), 4));
+        assertThat(back.wines()).isEqualTo(first.wines());
+        assertThat(back.previousCursor()).isNull();
+    }
+
+    // Tests facet counts computed in one pass over the index snapshot
+    @Test
+    void testShouldCountFacetsFromSnapshot(){
+        WineFacets facets = wineService.countFacets(WineFilter.of(" ", "Dry", " ", ">50", null, null), null);
+
+        assertThat(facets.colors()).containsEntry("Red", 1L).containsEntry("White", 2L);
+        assertThat(facets.color("Pink")).isZero();
+        assertThat(facets.flavours()).containsEntry("Dry", 3L);
+        assertThat(facets.type("Sparkling")).isEqualTo(1L);
+        assertThat(facets.price("40-50")).isEqualTo(1L);
+    }
+
+    // Tests that facet counts with a free-text query cover only the search hits, from the index snapshot
+    @Test
+    void testShouldCountFacetsForSearchHitsFromSnapshot(){
+        WineFacets facets = wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "cabernet");
+
+        assertThat(facets.color("Red")).isEqualTo(2L);
+        assertThat(facets.color("White")).isZero();
+        assertThat(facets.flavours()).containsOnly(entry("Dry", 1L), entry("Semi-Sweet", 1L));
+        assertThat(wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "riesling").colors()).isEmpty();
+    }
+
+    // Tests that a committed price change is visible through the index
+    @Test
+    void testShouldReflectPriceChange(){
+        assertThat(wineService.filterWines(null, null, null, "<20")).extracting(Wine::getName)
+                .containsExactlyInAnyOrder("Pinot Noir", "ERA Cabernet");
+
+        Wine merlot = wineRepository.findAll().stream()
+                .filter(wine -> wine.getName().equals("Merlot"))
+                .findFirst().orElseThrow();
+        merlot.setPrice(BigDecimal.valueOf(15));
+        wineRepository.save(merlot);
+
+        assertThat(wineService.filterWines(null, null, null, "<20")).extracting(Wine::getName)
+                .containsExactlyInAnyOrder("Pinot Noir", "ERA Cabernet", "Merlot");
+    }
+}
@@ -0,0 +1,170 @@
+package com.wineshop.integration.service;
+
+import com.wineshop.catalog.WineFacets;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WineListingRefresher;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.model.Color;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineListingRepository;
+import com.wineshop.service.WineService;
+import com.wineshop.util.BaseTestSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@SpringBootTest(properties = "wineshop.catalog.engine=listing")
+@ActiveProfiles("test") // Use the "test" profile for database configuration
+public class WineListingIntegrationTest extends BaseTestSetup {
+
+    @Autowired
+    WineService wineService;
+
+    @Autowired
+    WineListingRepository wineListingRepository;
+
+    @Autowired
+    WineListingRefresher wineListingRefresher;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp(){
+        initTestData(); // Initialize test data
+    }
+
+    // Tests that every saved wine gets a listing row with its dictionary names
+    @Test
+    void testShouldWriteRowForEverySavedWine(){
+        assertThat(wineListingRepository.count()).isEqualTo(wineRepository.count());
+
+        Wine prosecco = findWine("Prosecco");
+        assertThat(wineListingRepository.findById(prosecco.getId())).hasValueSatisfying(row -> {
+            assertThat(row.getColorName()).isEqualTo("White");
+            assertThat(row.getFlavourName()).isEqualTo("Dry");
+            assertThat(row.getTypeName()).isEqualTo("Sparkling");
+        });
+    }
+
+    // Tests keyset paging over the listing table in both directions
+    @Test
+    void testShouldPageThroughWinesByPrice(){
+        WineFilter all = WineFilter.of(null, null, null, null, null, null);
+        WinePage first = wineService.findWinePage(all, null, WinePageRequest.of("price_desc", null, null, 4));
+        assertThat(first.wines()).extracting(WineListing::getName)
+                .containsExactly("Cabernet Sauvignon", "Sauvignon Blanc", "Prosecco", "Merlot");
+
+        WinePage second = wineService.findWinePage(all, null, WinePageRequest.of("price_desc", first.nextCursor(), null, 4));
+        assertThat(second.wines()).extracting(WineListing::getName)
+                .containsExactly("Kindzmarauli", "Rkatsiteli", "Chardonnay", "ERA Cabernet");
+
+        WinePage back = wineService.findWinePage(all, null, WinePageRequest.of("price_desc", null, second.previousCursor(), 4));
+        assertThat(back.wines()).isEqualTo(first.wines());
+    }
+
+    // Tests filtering on the inline dictionary names
+    @Test
+    void testShouldFilterOnInlineNames(){
+        WinePage page = wineService.findWinePage(WineFilter.of("White", "Dry", " ", null, null, null), null, WinePageRequest.firstPage());
+
+        assertThat(page.wines()).extracting(WineListing::getName).containsExactly("Prosecco", "Sauvignon Blanc");
+        assertThat(page.wines()).extracting(WineListing::getType).containsExactly("Sparkling", null);
+    }
+
+    // Tests facet counts grouped over the listing table
+    @Test
+    void testShouldCountFacetsFromListing(){
+        WineFacets facets = wineService.countFacets(WineFilter.of(" ", "Dry", " ", ">50", null, null), null);
+
+        assertThat(facets.colors()).containsEntry("Red", 1L).containsEntry("White", 2L);
+        assertThat(facets.flavours()).containsEntry("Dry", 3L);
+        assertThat(facets.type("Sparkling")).isEqualTo(1L);
+        assertThat(facets.price("40-50")).isEqualTo(1L);
+    }
+
+    // Tests that facet counts with a free-text query cover only the search hits, from the listing table
+    @Test
+    void testShouldCountFacetsForSearchHitsFromListing(){
+        WineFacets facets = wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "cabernet");
+
+        assertThat(facets.color("Red")).isEqualTo(2L);
+        assertThat(facets.color("White")).isZero();
+        assertThat(facets.flavours()).containsOnly(entry("Dry", 1L), entry("Semi-Sweet", 1L));
+        assertThat(wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "riesling").colors()).isEmpty();
+    }
+
+    // Tests that a committed price change rewrites the row and the cached page
+    @Test
+    void testShouldRefreshRowWhenWineChanges(){
+        WineFilter cheap = WineFilter.of(null, null, null, "<20", null, null);
+        assertThat(wineService.findWinePage(cheap, null, WinePageRequest.firstPage()).wines())
+                .extracting(WineListing::getName).containsExactly("Pinot Noir", "ERA Cabernet");
+
+        Wine merlot = findWine("Merlot");
+        merlot.setPrice(BigDecimal.valueOf(15));
+        wineRepository.save(merlot);
+
+        assertThat(wineService.findWinePage(cheap, null, WinePageRequest.firstPage()).wines())
+                .extracting(WineListing::getName).containsExactly("Merlot", "Pinot Noir", "ERA Cabernet");
+    }
+
+    // Tests that renaming a dictionary entry copies the new name into the rows of its wines
+    @Test
+    void testShouldRefreshRowsWhenDictionaryChanges(){
+        Color pink = colorRepository.findAll().stream()
+                .filter(color -> color.getName().equals("Pink"))
+                .findFirst().orElseThrow();
+        pink.setName("Rose");
+        colorRepository.save(pink);
+
+        assertThat(wineService.findWinePage(WineFilter.of("Rose", null, null, null, null, null), null, WinePageRequest.firstPage()).wines())
+                .extracting(WineListing::getName).containsExactly("Pinot Noir");
+        assertThat(wineService.findWinePage(WineFilter.of("Pink", null, null, null, null, null), null, WinePageRequest.firstPage()).wines())
+                .isEmpty();
+    }
+
+    // Tests that rows changed outside JPA are found and rewritten by the reconcile
+    @Test
+    void testShouldRebuildListingChangedOutsideJpa(){
+        Wine prosecco = findWine("Prosecco");
+        Wine merlot = findWine("Merlot");
+        jdbcTemplate.update("update wine_listing set color_name = 'Red' where wine_id = ?", prosecco.getId());
+        jdbcTemplate.update("delete from wine_listing where wine_id = ?", merlot.getId());
+        assertThat(wineService.findWinePage(WineFilter.of("White", null, null, null, null, null), null, WinePageRequest.firstPage()).wines())
+                .extracting(WineListing::getName).doesNotContain("Prosecco");
+
+        assertThat(wineListingRefresher.reconcile()).isEqualTo(2);
+        assertThat(wineListingRefresher.reconcile()).isZero();
+
+        assertThat(wineListingRepository.count()).isEqualTo(wineRepository.count());
+        assertThat(wineService.findWinePage(WineFilter.of("White", null, null, null, null, null), null, WinePageRequest.firstPage()).wines())
+                .extracting(WineListing::getName).contains("Prosecco");
+        assertThat(wineListingRepository.findById(merlot.getId())).isPresent();
+    }
+
+    // Tests that a removed wine leaves the listing
+    @Test
+    void testShouldDropRowOfRemovedWine(){
+        Wine merlot = findWine("Merlot");
+        wineRepository.delete(merlot);
+
+        assertThat(wineListingRepository.existsById(merlot.getId())).isFalse();
+    }
+
+    private Wine findWine(String name){
+        return wineRepository.findAll().stream()
+                .filter(wine -> wine.getName().equals(name))
+                .findFirst().orElseThrow();
+    }
+}
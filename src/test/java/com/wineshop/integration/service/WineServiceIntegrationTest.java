@@ -1,19 +1,32 @@
 package com.wineshop.integration.service;
 
+import com.wineshop.catalog.WineFacets;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.catalog.WineSort;
 import com.wineshop.exception.WineNotFoundException;
 import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceDataRegistry;
 import com.wineshop.service.WineService;
 import com.wineshop.util.BaseTestSetup;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 @SpringBootTest
 @ActiveProfiles("test") // Use the "test" profile for database configuration
@@ -22,9 +35,16 @@ public class WineServiceIntegrationTest extends BaseTestSetup {
     @Autowired
     WineService wineService;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ReferenceDataRegistry referenceDataRegistry;
+
     @BeforeEach
     void setUp(){
         initTestData(); // Initialize test data
+        referenceDataRegistry.get(); // Load dictionaries so statement counts cover only the tested query
     }
 
     // Tests filtering red, dry wines within the price range of 40-50
@@ -54,13 +74,167 @@ public class WineServiceIntegrationTest extends BaseTestSetup {
                 .containsExactlyInAnyOrder("Chardonnay", "Rkatsiteli", "ERA Cabernet");
     }
 
-    // Tests if a wine can be found by its ID
+    // Tests that listing wines loads their dictionaries in one statement instead of one select per association
+    @Test
+    void testFilterWinesRunsSingleQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Wine> result = wineService.filterWines(null, null, null, null);
+
+        assertThat(result).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    // Tests walking all pages forward by price and back again with keyset cursors
+    @Test
+    void testShouldPageThroughWinesByPrice() {
+        List<String> forward = new ArrayList<>();
+        WinePage page = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_asc", null, null, 4));
+        WinePage lastPage = page;
+        forward.addAll(page.wines().stream().map(WineListing::getName).toList());
+        assertThat(page.previousCursor()).isNull();
+
+        while (page.nextCursor() != null) {
+            page = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_asc", page.nextCursor(), null, 4));
+            forward.addAll(page.wines().stream().map(WineListing::getName).toList());
+            lastPage = page;
+        }
+
+        assertThat(forward).containsExactly("Pinot Noir", "ERA Cabernet", "Chardonnay", "Rkatsiteli", "Kindzmarauli",
+                "Merlot", "Prosecco", "Sauvignon Blanc", "Cabernet Sauvignon");
+
+        WinePage previous = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, WinePageRequest.of("price_asc", null, lastPage.previousCursor(), 4));
+        assertThat(previous.wines()).extracting(WineListing::getName)
+                .containsExactly("Kindzmarauli", "Merlot", "Prosecco", "Sauvignon Blanc");
+        assertThat(previous.nextCursor()).isNotNull();
+        assertThat(previous.previousCursor()).isNotNull();
+    }
+
+    // Tests that a catalog page is read as listings in one statement without loading any Wine entities
+    @Test
+    void testShouldListWinesWithoutLoadingEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        WinePage page = wineService.findWinePage(WineFilter.of("Red", null, null, null, null, null), null, WinePageRequest.firstPage());
+
+        assertThat(page.wines()).extracting(WineListing::getColor).containsOnly("Red");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    // Tests that explicit min and max prices select any range and take precedence over the price bucket
+    @Test
+    void testShouldFilterByArbitraryPriceRange() {
+        WinePage page = wineService.findWinePage(WineFilter.of(null, null, null, "<20", new BigDecimal("24.99"), BigDecimal.valueOf(34)),
+                null, WinePageRequest.firstPage());
+
+        assertThat(page.wines()).extracting(WineListing::getName)
+                .containsExactly("Chardonnay", "Rkatsiteli", "Kindzmarauli");
+
+        WinePage fromOnly = wineService.findWinePage(WineFilter.of(null, null, null, null, BigDecimal.valueOf(65), null),
+                null, WinePageRequest.firstPage());
+
+        assertThat(fromOnly.wines()).extracting(WineListing::getName).containsExactly("Sauvignon Blanc", "Cabernet Sauvignon");
+    }
+
+    // Tests that paging respects filters and descending sort orders
+    @Test
+    void testShouldPageFilteredWinesByNameDescending() {
+        WinePage page = wineService.findWinePage(WineFilter.of("Red", null, null, null, null, null), null, new WinePageRequest(WineSort.NAME_DESC, null, null, 3));
+
+        assertThat(page.wines()).extracting(WineListing::getName).containsExactly("Merlot", "Kindzmarauli", "ERA Cabernet");
+        assertThat(page.nextCursor()).isNotNull();
+
+        WinePage next = wineService.findWinePage(WineFilter.of("Red", null, null, null, null, null), null, WinePageRequest.of("name_desc", page.nextCursor(), null, 3));
+
+        assertThat(next.wines()).extracting(WineListing::getName).containsExactly("Cabernet Sauvignon");
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    // Tests free-text search combined with dictionary filters
+    @Test
+    void testShouldSearchByTextWithinFilters() {
+        WinePage all = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), "cabernet", WinePageRequest.firstPage());
+        assertThat(all.wines()).extracting(WineListing::getName)
+                .containsExactlyInAnyOrder("Cabernet Sauvignon", "ERA Cabernet");
+
+        WinePage semiSweet = wineService.findWinePage(WineFilter.of(null, "Semi-Sweet", null, null, null, null), "cabernet", WinePageRequest.firstPage());
+        assertThat(semiSweet.wines()).extracting(WineListing::getName).containsExactly("ERA Cabernet");
+
+        WinePage none = wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), "riesling", WinePageRequest.firstPage());
+        assertThat(none.wines()).isEmpty();
+    }
+
+    // Tests that relevance-ordered search results page with their own cursors, and a sort cursor does not resume them
+    @Test
+    void testShouldPageSearchResultsByRelevance() {
+        WineFilter all = WineFilter.of(null, null, null, null, null, null);
+        WinePage first = wineService.findWinePage(all, "cabernet", WinePageRequest.of(null, null, null, 1));
+        WinePage second = wineService.findWinePage(all, "cabernet", WinePageRequest.of(null, first.nextCursor(), null, 1));
+
+        List<String> firstNames = first.wines().stream().map(WineListing::getName).toList();
+        assertThat(firstNames).hasSize(1);
+        assertThat(second.wines()).extracting(WineListing::getName).hasSize(1).doesNotContainAnyElementsOf(firstNames);
+        assertThat(second.nextCursor()).isNull();
+
+        String priceCursor = wineService.findWinePage(all, null, WinePageRequest.of("price_asc", null, null, 1)).nextCursor();
+        WinePage replayed = wineService.findWinePage(all, "cabernet", WinePageRequest.of(null, priceCursor, null, 1));
+        assertThat(replayed.wines()).extracting(WineListing::getName).isEqualTo(firstNames);
+    }
+
+    // Tests that the page size is capped
+    @Test
+    void testShouldCapPageSize() {
+        assertThat(WinePageRequest.of(null, null, null, 10_000).size()).isEqualTo(WinePageRequest.MAX_SIZE);
+    }
+
+    // Tests facet counts for a red selection: each facet ignores its own selection
+    @Test
+    void testShouldCountFacetsForSelection() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        WineFacets facets = wineService.countFacets(WineFilter.of("Red", null, null, null, null, null), null);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(facets.colors()).containsEntry("Red", 4L).containsEntry("White", 4L).containsEntry("Pink", 1L);
+        assertThat(facets.flavours()).containsEntry("Dry", 2L).containsEntry("Sweet", 1L).containsEntry("Semi-Sweet", 1L);
+        assertThat(facets.flavour("Semi-Dry")).isZero();
+        assertThat(facets.type("Sparkling")).isZero();
+        assertThat(facets.prices()).containsExactly(
+                entry("<20", 1L),
+                entry("20-30", 1L),
+                entry("30-40", 2L),
+                entry("40-50", 1L),
+                entry(">50", 1L));
+    }
+
+    // Tests that facet counts with a free-text query cover only the search hits
+    @Test
+    void testShouldCountFacetsForSearchHits() {
+        WineFacets facets = wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "cabernet");
+
+        assertThat(facets.color("Red")).isEqualTo(2L);
+        assertThat(facets.color("White")).isZero();
+        assertThat(facets.flavours()).containsOnly(entry("Dry", 1L), entry("Semi-Sweet", 1L));
+        assertThat(wineService.countFacets(WineFilter.of(null, null, null, null, null, null), "riesling").colors()).isEmpty();
+    }
+
+    // Tests if a wine can be found by its ID. The ID is looked up, since generated IDs depend on earlier tests.
     @Test
     void testFindWineById() {
-        Wine wine = wineService.findWineByIdOrThrow(1);
+        Integer merlotId = wineRepository.findAll().stream()
+                .filter(w -> w.getName().equals("Merlot"))
+                .findFirst().orElseThrow()
+                .getId();
+
+        Wine wine = wineService.findWineByIdOrThrow(merlotId);
 
         assertThat(wine).isNotNull();
-        assertThat(wine.getId()).isEqualTo(1);
+        assertThat(wine.getId()).isEqualTo(merlotId);
+        assertThat(wine.getName()).isEqualTo("Merlot");
     }
 
     // Tests if an exception is thrown when searching for a non-existent wine ID
@@ -86,6 +86,18 @@ public class WineSpecificationTest extends BaseTestSetup {
         assertThat(result.get(0).getName()).isEqualTo("Merlot");
     }
 
+    // Tests filtering by dictionary IDs instead of names
+    @Test
+    void testCombineFiltersByIds(){
+        Integer redId = colorRepository.findAll().stream().filter(color -> color.getName().equals("Red")).findFirst().orElseThrow().getId();
+        Integer dryId = flavourRepository.findAll().stream().filter(flavour -> flavour.getName().equals("Dry")).findFirst().orElseThrow().getId();
+
+        Specification<Wine> specification = WineSpecification.filterByIds(redId, dryId, null, BigDecimal.valueOf(20), BigDecimal.valueOf(50));
+        List<Wine> result = wineRepository.findAll(specification);
+
+        assertThat(result).extracting(Wine::getName).containsExactly("Merlot");
+    }
+
     // Tests if all wines are returned when no filters are applied
     @Test
     void testReturnAllWinesIfNoFiltersAreApplied(){
@@ -0,0 +1,43 @@
+package com.wineshop.unit.basket;
+
+import com.wineshop.basket.Money;
+import com.wineshop.basket.MoneyConverter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoneyTest {
+
+    // Test that arithmetic in grosze matches BigDecimal arithmetic exactly
+    @Test
+    void testShouldMatchBigDecimalArithmetic(){
+        BigDecimal unitPrice = new BigDecimal("19.99");
+
+        Money lineTotal = Money.of(unitPrice).times(3).plus(Money.of(new BigDecimal("0.03")));
+
+        assertThat(lineTotal.minorUnits()).isEqualTo(6000);
+        assertThat(lineTotal.toBigDecimal()).isEqualTo(new BigDecimal("60.00"));
+        assertThat(lineTotal.toString()).isEqualTo("60.00");
+    }
+
+    // Test that amounts finer than a grosz and overflowing totals are rejected instead of rounded
+    @Test
+    void testShouldRejectInexactAmounts(){
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.005"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> new Money(Long.MAX_VALUE).plus(new Money(1))).isInstanceOf(ArithmeticException.class);
+        assertThat(Money.of(new BigDecimal("1.50000"))).isEqualTo(new Money(150));
+    }
+
+    // Test that the converter maps to two-decimal column values and back
+    @Test
+    void testShouldConvertToAndFromColumn(){
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(new Money(12345))).isEqualTo(new BigDecimal("123.45"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("123.45"))).isEqualTo(new Money(12345));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+}
@@ -0,0 +1,66 @@
+package com.wineshop.unit.catalog;
+
+import com.wineshop.catalog.CatalogResultCache;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogResultCacheTest {
+
+    private CatalogResultCache resultCache;
+    private WineFilter filter;
+
+    @BeforeEach
+    void setUp(){
+        resultCache = new CatalogResultCache(new SimpleMeterRegistry(), new PrimaryReads(TransactionOperations.withoutTransaction()), 100, Duration.ofMinutes(10));
+        filter = WineFilter.of("Red", null, null, null, null, null);
+    }
+
+    // Tests that a result is loaded once and then served from the cache
+    @Test
+    void testShouldCacheLoadedResult(){
+        AtomicInteger loads = new AtomicInteger();
+
+        resultCache.get(filter, null, () -> List.of(loads.incrementAndGet()), ids -> ids);
+        List<Integer> second = resultCache.get(filter, null, () -> List.of(loads.incrementAndGet()), ids -> ids);
+
+        assertThat(second).containsExactly(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    // Tests that a result whose load overlapped a wine change is returned but not kept
+    @Test
+    void testShouldNotKeepResultLoadedDuringEviction(){
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Integer> first = resultCache.get(filter, null, () -> {
+            // The query has read its rows when the change commits and evicts
+            List<Integer> rows = List.of(loads.incrementAndGet());
+            resultCache.onWineChanged(WineChangedEvent.saved(createWine(7)));
+            return rows;
+        }, ids -> ids);
+        List<Integer> second = resultCache.get(filter, null, () -> List.of(loads.incrementAndGet()), ids -> ids);
+
+        assertThat(first).containsExactly(1);
+        assertThat(second).containsExactly(2);
+    }
+
+    private Wine createWine(int id){
+        Wine wine = new Wine("Wine " + id, BigDecimal.valueOf(30), "image.jpg", 750, 10, null, null);
+        ReflectionTestUtils.setField(wine, "id", id);
+        return wine;
+    }
+}
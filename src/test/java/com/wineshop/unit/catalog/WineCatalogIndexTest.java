@@ -0,0 +1,109 @@
+package com.wineshop.unit.catalog;
+
+import com.wineshop.catalog.WineCatalogIndex;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Color;
+import com.wineshop.model.Flavour;
+import com.wineshop.model.Type;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class WineCatalogIndexTest {
+
+    private WineRepository wineRepository;
+    private WineCatalogIndex catalogIndex;
+
+    private final Color red = new Color("Red");
+    private final Color white = new Color("White");
+    private final Flavour dry = new Flavour("Dry");
+    private final Flavour sweet = new Flavour("Sweet");
+    private final Type sparkling = new Type("Sparkling");
+
+    @BeforeEach
+    void setUp(){
+        wineRepository = Mockito.mock(WineRepository.class);
+        catalogIndex = new WineCatalogIndex(wineRepository, new PrimaryReads(TransactionOperations.withoutTransaction()));
+
+        when(wineRepository.findAll()).thenReturn(List.of(
+                createWine(1, "Merlot", "40.00", red, dry, null),
+                createWine(2, "Chardonnay", "25.00", white, dry, null),
+                createWine(3, "Prosecco", "60.00", white, dry, sparkling),
+                createWine(4, "Kindzmarauli", "34.50", red, sweet, null)));
+    }
+
+    // Tests combining color and flavour bitsets
+    @Test
+    void testShouldFilterByColorAndFlavour(){
+        List<Wine> result = catalogIndex.filter(new WineFilter("White", "Dry", null, null, null));
+
+        assertThat(result).extracting(Wine::getName).containsExactly("Chardonnay", "Prosecco");
+    }
+
+    // Tests that blank values sent by the search form are treated as no filter
+    @Test
+    void testShouldIgnoreBlankCriteria(){
+        List<Wine> result = catalogIndex.filter(new WineFilter(" ", " ", " ", null, null));
+
+        assertThat(result).hasSize(4);
+    }
+
+    // Tests that price bounds are inclusive, like the SQL BETWEEN
+    @Test
+    void testShouldFilterByInclusivePriceRange(){
+        List<Wine> result = catalogIndex.filter(new WineFilter(null, null, null, BigDecimal.valueOf(25), BigDecimal.valueOf(40)));
+
+        assertThat(result).extracting(Wine::getName).containsExactly("Merlot", "Chardonnay", "Kindzmarauli");
+    }
+
+    // Tests that an unknown dictionary value matches nothing
+    @Test
+    void testShouldReturnEmptyForUnknownValue(){
+        List<Wine> result = catalogIndex.filter(new WineFilter("Black", null, null, null, null));
+
+        assertThat(result).isEmpty();
+    }
+
+    // Tests that a price change is patched into the snapshot without reloading from the database
+    @Test
+    void testShouldPatchSnapshotWhenWineChanges(){
+        catalogIndex.filter(new WineFilter(null, null, null, null, null));
+
+        Wine merlot = createWine(1, "Merlot", "15.00", red, dry, null);
+        catalogIndex.onWineChanged(WineChangedEvent.saved(merlot));
+
+        List<Wine> result = catalogIndex.filter(new WineFilter(null, null, null, null, BigDecimal.valueOf(20)));
+
+        assertThat(result).containsExactly(merlot);
+        verify(wineRepository, times(1)).findAll();
+    }
+
+    // Tests that removed wines disappear from the snapshot
+    @Test
+    void testShouldRemoveWineFromSnapshot(){
+        catalogIndex.filter(new WineFilter(null, null, null, null, null));
+
+        catalogIndex.onWineChanged(WineChangedEvent.removed(createWine(3, "Prosecco", "60.00", white, dry, sparkling)));
+
+        assertThat(catalogIndex.filter(new WineFilter(null, null, "Sparkling", null, null))).isEmpty();
+    }
+
+    private Wine createWine(int id, String name, String price, Color color, Flavour flavour, Type type){
+        Wine wine = new Wine(name, new BigDecimal(price), "image.jpg", 750, 10, color, flavour);
+        wine.setType(type);
+        ReflectionTestUtils.setField(wine, "id", id);
+        return wine;
+    }
+}
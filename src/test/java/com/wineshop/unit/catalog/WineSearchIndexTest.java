@@ -0,0 +1,98 @@
+package com.wineshop.unit.catalog;
+
+import com.wineshop.catalog.PolishTextAnalyzer;
+import com.wineshop.catalog.SearchHit;
+import com.wineshop.catalog.WineSearchIndex;
+import com.wineshop.datasource.PrimaryReads;
+import com.wineshop.event.WineChangedEvent;
+import com.wineshop.model.Wine;
+import com.wineshop.repository.WineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class WineSearchIndexTest {
+
+    private WineRepository wineRepository;
+    private WineSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp(){
+        wineRepository = Mockito.mock(WineRepository.class);
+        searchIndex = new WineSearchIndex(wineRepository, new PrimaryReads(TransactionOperations.withoutTransaction()));
+
+        when(wineRepository.findAll()).thenReturn(List.of(
+                createWine(1, "Kindzmarauli", "Półsłodkie czerwone wino z Kachetii", "Pasuje do deserów i serów"),
+                createWine(2, "Saperavi", "Wytrawne czerwone wino", "Pasuje do czerwonego mięsa"),
+                createWine(3, "Pirosmani", "Półsłodkie wino, półsłodkie i owocowe", null)));
+    }
+
+    // Tests lower-casing and folding of Polish diacritics
+    @Test
+    void testShouldFoldPolishDiacritics(){
+        assertThat(PolishTextAnalyzer.tokenize("Półsłodkie, ŻÓŁTE-wino!"))
+                .containsExactly("polslodkie", "zolte", "wino");
+    }
+
+    // Tests that folded and unfolded spellings find the same wines, most relevant first
+    @Test
+    void testShouldMatchWithoutDiacritics(){
+        List<SearchHit> hits = searchIndex.search("polslodkie");
+
+        assertThat(hits).extracting(SearchHit::wineId).containsExactly(3, 1);
+        assertThat(searchIndex.search("Półsłodkie")).isEqualTo(hits);
+    }
+
+    // Tests that wines matching more query terms rank higher
+    @Test
+    void testShouldRankByBm25(){
+        List<SearchHit> hits = searchIndex.search("czerwone deserów");
+
+        assertThat(hits).extracting(SearchHit::wineId).containsExactly(1, 2);
+        assertThat(hits.get(0).score()).isGreaterThan(hits.get(1).score());
+    }
+
+    // Tests that a changed wine is re-indexed without reloading the catalog
+    @Test
+    void testShouldUpdateIndexIncrementally(){
+        assertThat(searchIndex.search("gruzja")).isEmpty();
+
+        searchIndex.onWineChanged(WineChangedEvent.saved(createWine(2, "Saperavi", "Wytrawne wino z Gruzji, Gruzja", null)));
+        assertThat(searchIndex.search("gruzja")).extracting(SearchHit::wineId).containsExactly(2);
+        assertThat(searchIndex.search("mięsa")).isEmpty();
+
+        searchIndex.onWineChanged(WineChangedEvent.removed(createWine(2, "Saperavi", null, null)));
+        assertThat(searchIndex.search("saperavi")).isEmpty();
+        verify(wineRepository, times(1)).findAll();
+    }
+
+    // Tests that a wine saved while the first build loads its snapshot is searchable once the build finishes
+    @Test
+    void testShouldApplyChangesMadeDuringBuild(){
+        Wine saperavi = createWine(2, "Saperavi", "Wytrawne czerwone wino", "Pasuje do czerwonego mięsa");
+        when(wineRepository.findAll()).thenAnswer(invocation -> {
+            // Committed after the snapshot was read: the snapshot still lacks the new wine
+            searchIndex.onWineChanged(WineChangedEvent.saved(createWine(4, "Mukuzani", "Wytrawne wino z Gruzji", null)));
+            return List.of(saperavi);
+        });
+
+        assertThat(searchIndex.search("gruzji")).extracting(SearchHit::wineId).containsExactly(4);
+        assertThat(searchIndex.search("saperavi")).extracting(SearchHit::wineId).containsExactly(2);
+    }
+
+    private Wine createWine(int id, String name, String description, String pairing){
+        Wine wine = new Wine(name, BigDecimal.valueOf(30), "image.jpg", 750, 10, null, null);
+        wine.setDescription(description);
+        wine.setPairing(pairing);
+        ReflectionTestUtils.setField(wine, "id", id);
+        return wine;
+    }
+}
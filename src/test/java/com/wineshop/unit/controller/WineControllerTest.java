@@ -1,20 +1,34 @@
 package com.wineshop.unit.controller;
 
+import com.wineshop.basket.BasketSummary;
+import com.wineshop.basket.Money;
+import com.wineshop.catalog.WineFilter;
+import com.wineshop.catalog.WineListing;
+import com.wineshop.catalog.WinePage;
+import com.wineshop.catalog.WinePageRequest;
+import com.wineshop.catalog.WineVersionCache;
+import com.wineshop.controller.BasketSummaryAdvice;
 import com.wineshop.controller.WineController;
 import com.wineshop.exception.WineNotFoundException;
 import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceData;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.service.BasketItemService;
 import com.wineshop.service.WineService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -25,7 +39,9 @@ public class WineControllerTest {
 
     private WineService wineService;
 
-    private List<Wine> mockWineList;
+    private BasketItemService basketItemService;
+
+    private List<WineListing> mockWineList;
 
     @BeforeEach
     void setUp() {
@@ -33,13 +49,18 @@ public class WineControllerTest {
 
         // Mock the service and set up the controller
         wineService = Mockito.mock(WineService.class);
-        WineController wineController = new WineController(wineService);
-        mockMvc = MockMvcBuilders.standaloneSetup(wineController).build();
+        basketItemService = Mockito.mock(BasketItemService.class);
+        ReferenceDataRegistry referenceDataRegistry = Mockito.mock(ReferenceDataRegistry.class);
+        when(referenceDataRegistry.get()).thenReturn(ReferenceData.EMPTY);
+        WineController wineController = new WineController(wineService, referenceDataRegistry);
+        mockMvc = MockMvcBuilders.standaloneSetup(wineController)
+                .setControllerAdvice(new BasketSummaryAdvice(basketItemService))
+                .build();
 
         // Initialize mock data
         mockWineList = new ArrayList<>();
-        mockWineList.add(new Wine("Wine A", BigDecimal.valueOf(30), "wine-a.jpeg", null, null, null, null));
-        mockWineList.add(new Wine("Wine B", BigDecimal.valueOf(50), "wine-b.jpeg", null, null, null, null));
+        mockWineList.add(new WineListing(1, "Wine A", BigDecimal.valueOf(30), "wine-a.jpeg", null, "Red", "Dry", null));
+        mockWineList.add(new WineListing(2, "Wine B", BigDecimal.valueOf(50), "wine-b.jpeg", null, "Red", "Dry", null));
     }
 
     // Tests if the home page is displayed correctly with an empty wine list
@@ -57,7 +78,8 @@ public class WineControllerTest {
     // Tests if filtering wines by criteria returns the expected results
     @Test
     void testFilterWines() throws Exception {
-        when(wineService.filterWines("Red", "Dry", null, "20-30")).thenReturn(mockWineList);
+        when(wineService.findWinePage(WineFilter.of("Red", "Dry", null, "20-30", null, null), null, WinePageRequest.firstPage()))
+                .thenReturn(new WinePage(mockWineList, null, null));
 
         mockMvc.perform(get("/wines")
                         .param("color", "Red")
@@ -68,13 +90,15 @@ public class WineControllerTest {
                 .andExpect(model().attributeExists("wines"))
                 .andExpect(model().attribute("wines", mockWineList));
 
-        verify(wineService, times(1)).filterWines("Red", "Dry", null, "20-30");
+        verify(wineService, times(1)).findWinePage(WineFilter.of("Red", "Dry", null, "20-30", null, null), null, WinePageRequest.firstPage());
+        verify(wineService, times(1)).countFacets(WineFilter.of("Red", "Dry", null, "20-30", null, null), null);
     }
 
     // Tests if filtering wines with no matching results returns an empty list
     @Test
     void testFilterWinesWithNoResults() throws Exception {
-        when(wineService.filterWines("Red", "Sweet", null, "50-60")).thenReturn(new ArrayList<>());
+        when(wineService.findWinePage(WineFilter.of("Red", "Sweet", null, "50-60", null, null), null, WinePageRequest.firstPage()))
+                .thenReturn(new WinePage(new ArrayList<>(), null, null));
 
         mockMvc.perform(get("/wines")
                         .param("color", "Red")
@@ -86,7 +110,60 @@ public class WineControllerTest {
                 .andExpect(model().attributeExists("wines"))
                 .andExpect(model().attribute("wines", new ArrayList<>()));
 
-        verify(wineService, times(1)).filterWines("Red", "Sweet", null, "50-60");
+        verify(wineService, times(1)).findWinePage(WineFilter.of("Red", "Sweet", null, "50-60", null, null), null, WinePageRequest.firstPage());
+    }
+
+    // Tests that numeric min and max prices override the price range bucket
+    @Test
+    void testFilterWinesByMinAndMaxPrice() throws Exception {
+        WineFilter filter = new WineFilter(null, null, null, new BigDecimal("22.50"), BigDecimal.valueOf(31));
+        when(wineService.findWinePage(filter, null, WinePageRequest.firstPage()))
+                .thenReturn(new WinePage(mockWineList, null, null));
+
+        mockMvc.perform(get("/wines")
+                        .param("price", ">50")
+                        .param("minPrice", "22.50")
+                        .param("maxPrice", "31"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attribute("wines", mockWineList))
+                .andExpect(model().attribute("minPrice", new BigDecimal("22.50")));
+
+        verify(wineService, times(1)).findWinePage(filter, null, WinePageRequest.firstPage());
+        verify(wineService, times(1)).countFacets(filter, null);
+    }
+
+    // Tests that the free-text query is passed to the facet counts as well as to the page
+    @Test
+    void testFilterWinesWithQuery() throws Exception {
+        WineFilter filter = WineFilter.of(null, null, null, null, null, null);
+        when(wineService.findWinePage(filter, "cabernet", WinePageRequest.firstPage()))
+                .thenReturn(new WinePage(mockWineList, null, null));
+
+        mockMvc.perform(get("/wines").param("q", "cabernet"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("q", "cabernet"));
+
+        verify(wineService, times(1)).findWinePage(filter, "cabernet", WinePageRequest.firstPage());
+        verify(wineService, times(1)).countFacets(filter, "cabernet");
+    }
+
+    // Tests that sort, size and cursor parameters are passed to the service and cursors reach the model
+    @Test
+    void testFilterWinesWithPaging() throws Exception {
+        WinePageRequest pageRequest = WinePageRequest.of("name_desc", null, null, 2);
+        when(wineService.findWinePage(WineFilter.of(null, null, null, null, null, null), null, pageRequest))
+                .thenReturn(new WinePage(mockWineList, "next", null));
+
+        mockMvc.perform(get("/wines")
+                        .param("sort", "name_desc")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attribute("wines", mockWineList))
+                .andExpect(model().attribute("sort", "name_desc"))
+                .andExpect(model().attribute("nextCursor", "next"))
+                .andExpect(model().attribute("previousCursor", (Object) null));
     }
 
     // Tests if wine details are displayed correctly for an existing wine ID
@@ -104,6 +181,33 @@ public class WineControllerTest {
         verify(wineService, times(1)).findWineByIdOrThrow(1);
     }
 
+    // Tests that a matching If-None-Match header short-circuits to 304 without loading the wine
+    @Test
+    void testShowWineDetailsNotModified() throws Exception {
+        when(wineService.findWineValidators(1)).thenReturn(new WineVersionCache.Validators("\"1-3-abc\"", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/wines/1").header("If-None-Match", "\"1-3-abc-0-0\""))
+                .andExpect(status().isNotModified());
+
+        verify(wineService, never()).findWineByIdOrThrow(any());
+    }
+
+    // Tests that the details page is served again once the visitor's basket badge has changed
+    @Test
+    void testShowWineDetailsModifiedByBasket() throws Exception {
+        when(wineService.findWineValidators(1)).thenReturn(new WineVersionCache.Validators("\"1-3-abc\"", 1_700_000_000_000L));
+        when(basketItemService.getBasketSummary("visitor"))
+                .thenReturn(new BasketSummary(2, Money.of(new BigDecimal("60.00")), Instant.ofEpochMilli(1_800_000_000_000L)));
+        when(wineService.findWineByIdOrThrow(1)).thenReturn(new Wine("Wine A", BigDecimal.valueOf(30), "wine-a.jpeg", null, null, null, null));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("sessionId", "visitor");
+
+        mockMvc.perform(get("/wines/1").session(session).header("If-None-Match", "\"1-3-abc-0-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-3-abc-2-4mo\""))
+                .andExpect(model().attribute("basketSummary", new BasketSummary(2, Money.of(new BigDecimal("60.00")), Instant.ofEpochMilli(1_800_000_000_000L))));
+    }
+
     // Tests if an error message is displayed when trying to fetch a non-existent wine
     @Test
     void testShowWineDetailsNotFound() throws Exception {
@@ -1,5 +1,6 @@
 package com.wineshop.unit.service;
 
+import com.wineshop.basket.JpaBasketStore;
 import com.wineshop.exception.BasketItemNotFoundException;
 import com.wineshop.exception.NotEnoughStockException;
 import com.wineshop.model.Basket;
@@ -8,13 +9,18 @@ import com.wineshop.model.Wine;
 import com.wineshop.repository.BasketItemRepository;
 import com.wineshop.repository.BasketRepository;
 import com.wineshop.repository.WineRepository;
+import com.wineshop.repository.WineStockRepository;
 import com.wineshop.service.BasketItemService;
+import com.wineshop.service.StockReservationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionOperations;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,14 +33,18 @@ public class BasketItemServiceTest {
     private BasketItemRepository basketItemRepository;
     private BasketRepository basketRepository;
     private WineRepository wineRepository;
+    private WineStockRepository wineStockRepository;
 
     @BeforeEach
     void setUp(){
         basketItemRepository = Mockito.mock(BasketItemRepository.class);
         basketRepository = Mockito.mock(BasketRepository.class);
         wineRepository = Mockito.mock(WineRepository.class);
+        wineStockRepository = Mockito.mock(WineStockRepository.class);
 
-        basketItemService = new BasketItemService(basketItemRepository, basketRepository, wineRepository);
+        StockReservationService stockReservationService = new StockReservationService(wineStockRepository, Duration.ofMinutes(30));
+        basketItemService = new BasketItemService(new JpaBasketStore(basketItemRepository, basketRepository, wineRepository,
+                stockReservationService, TransactionOperations.withoutTransaction()));
     }
 
     // Test adding a new item to the basket when it does not exist yet
@@ -47,14 +57,15 @@ public class BasketItemServiceTest {
         Basket basket = createBasket(sessionId);
         Wine wine = createWine("Cabernet Sauvignon", BigDecimal.valueOf(50), 10);
 
+        when(basketRepository.touchBySessionId(eq(sessionId), any())).thenReturn(1);
         when(basketRepository.findBySessionId(sessionId)).thenReturn(Optional.of(basket));
         when(wineRepository.findById(wineId)).thenReturn(Optional.of(wine));
-        when(basketItemRepository.findByBasketAndWine(basket, wine)).thenReturn(Optional.empty());
+        when(wineStockRepository.reserveStock(wine.getId(), quantity)).thenReturn(1);
 
         basketItemService.addOrUpdateBasketItem(sessionId, wineId, quantity);
 
         ArgumentCaptor<BasketItem> captor = ArgumentCaptor.forClass(BasketItem.class);
-        verify(basketItemRepository).save(captor.capture());
+        verify(basketItemRepository).saveAndFlush(captor.capture());
 
         BasketItem savedItem = captor.getValue();
 
@@ -62,6 +73,7 @@ public class BasketItemServiceTest {
         assertThat(savedItem.getBasket()).isEqualTo(basket);
         assertThat(savedItem.getQuantity()).isEqualTo(2);
         assertThat(savedItem.getPrice()).isEqualByComparingTo(BigDecimal.valueOf(100));
+        assertThat(savedItem.getReservedUntil()).isNotNull();
     }
 
     // Test ensuring an exception is thrown when trying to add more wine than available in stock
@@ -74,15 +86,16 @@ public class BasketItemServiceTest {
         Basket basket = createBasket(sessionId);
         Wine wine = createWine("Cabernet Sauvignon", BigDecimal.valueOf(50), 10);
 
+        when(basketRepository.touchBySessionId(eq(sessionId), any())).thenReturn(1);
         when(basketRepository.findBySessionId(sessionId)).thenReturn(Optional.of(basket));
         when(wineRepository.findById(wineId)).thenReturn(Optional.of(wine));
-        when(basketItemRepository.findByBasketAndWine(basket, wine)).thenReturn(Optional.empty());
+        when(wineStockRepository.reserveStock(wine.getId(), quantity)).thenReturn(0);
 
         assertThatThrownBy(() -> basketItemService.addOrUpdateBasketItem(sessionId, wineId, quantity))
                 .isInstanceOf(NotEnoughStockException.class)
                 .hasMessageContaining("Not enough stock");
 
-        verify(basketItemRepository, never()).save(any(BasketItem.class));
+        verify(basketItemRepository, never()).saveAndFlush(any(BasketItem.class));
 
     }
 
@@ -99,11 +112,12 @@ public class BasketItemServiceTest {
 
         when(basketRepository.findBySessionId(sessionId)).thenReturn(Optional.of(basket));
         when(wineRepository.findById(wineId)).thenReturn(Optional.of(wine));
-        when(basketItemRepository.findByBasketAndWine(basket, wine)).thenReturn(Optional.of(basketItem));
+        when(basketItemRepository.findWithLockByBasketAndWine(basket, wine)).thenReturn(Optional.of(basketItem));
 
         basketItemService.removeBasketItem(sessionId, wineId);
 
         verify(basketItemRepository).delete(basketItem);
+        verify(wineStockRepository).releaseStock(wine.getId(), 2);
     }
 
     // Test not removing a basket item if it does not exist in the basket
@@ -117,7 +131,7 @@ public class BasketItemServiceTest {
 
         when(basketRepository.findBySessionId(sessionId)).thenReturn(Optional.of(basket));
         when(wineRepository.findById(1)).thenReturn(Optional.of(wine));
-        when(basketItemRepository.findByBasketAndWine(basket, wine)).thenReturn(Optional.empty());
+        when(basketItemRepository.findWithLockByBasketAndWine(basket, wine)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> basketItemService.removeBasketItem(sessionId, wineId))
                 .isInstanceOf(BasketItemNotFoundException.class)
@@ -140,7 +154,8 @@ public class BasketItemServiceTest {
 
         when(basketRepository.findBySessionId(sessionId)).thenReturn(Optional.of(basket));
         when(wineRepository.findById(wineId)).thenReturn(Optional.of(wine));
-        when(basketItemRepository.findByBasketAndWine(basket, wine)).thenReturn(Optional.of(basketItem));
+        when(basketItemRepository.findWithLockByBasketAndWine(basket, wine)).thenReturn(Optional.of(basketItem));
+        when(wineStockRepository.reserveStock(wine.getId(), 1)).thenReturn(1);
 
         basketItemService.updateBasketItemQuantity(sessionId, wineId, newQuantity);
 
@@ -155,6 +170,17 @@ public class BasketItemServiceTest {
         assertThat(updatedItem.getPrice()).isEqualByComparingTo(BigDecimal.valueOf(150));
     }
 
+    // Test that a quantity below 1 is rejected before any stock is released or any line changes
+    @Test
+    public void testShouldRejectQuantityBelowOne() {
+        assertThatThrownBy(() -> basketItemService.updateBasketItemQuantity("abc123", 1, -5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> basketItemService.updateBasketItemQuantities("abc123", Map.of(1, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(basketRepository, basketItemRepository, wineRepository, wineStockRepository);
+    }
+
     // Test retrieving all basket items for a session
     @Test
     void shouldRetrieveBasketItems() {
@@ -3,6 +3,7 @@ package com.wineshop.unit.service;
 import com.wineshop.model.Basket;
 import com.wineshop.repository.BasketRepository;
 import com.wineshop.service.BasketService;
+import com.wineshop.service.StockReservationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -21,7 +22,7 @@ public class BasketServiceTest {
     @BeforeEach
     void setUp(){
         basketRepository = Mockito.mock(BasketRepository.class);
-        basketService = new BasketService(basketRepository);
+        basketService = new BasketService(basketRepository, Mockito.mock(StockReservationService.class));
     }
 
     // Tests returning an existing basket if found by session ID
@@ -1,15 +1,27 @@
 package com.wineshop.unit.service;
 
+import com.wineshop.catalog.CatalogEngine;
+import com.wineshop.catalog.CatalogResultCache;
+import com.wineshop.catalog.WineCatalogIndex;
+import com.wineshop.catalog.WineSearchIndex;
+import com.wineshop.catalog.WineVersionCache;
+import com.wineshop.datasource.PrimaryReads;
 import com.wineshop.exception.WineNotFoundException;
 import com.wineshop.model.Wine;
+import com.wineshop.reference.ReferenceData;
+import com.wineshop.reference.ReferenceDataRegistry;
+import com.wineshop.repository.WineListingRepository;
 import com.wineshop.repository.WineRepository;
 import com.wineshop.service.WineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,7 +41,13 @@ public class WineServiceTest {
         wineRepository = Mockito.mock(WineRepository.class);
 
         // Inject the mocked repository into the service
-        wineService = new WineService(wineRepository);
+        ReferenceDataRegistry referenceDataRegistry = Mockito.mock(ReferenceDataRegistry.class);
+        when(referenceDataRegistry.get()).thenReturn(ReferenceData.EMPTY);
+        PrimaryReads primaryReads = new PrimaryReads(TransactionOperations.withoutTransaction());
+        wineService = new WineService(wineRepository, Mockito.mock(WineListingRepository.class), new WineCatalogIndex(wineRepository, primaryReads),
+                new WineSearchIndex(wineRepository, primaryReads), referenceDataRegistry,
+                new CatalogResultCache(new SimpleMeterRegistry(), primaryReads, 100, Duration.ofMinutes(10)),
+                new WineVersionCache(wineRepository, primaryReads), CatalogEngine.SQL);
     }
 
     // Tests if the filtering method returns the correct wines based on criteria